@@ -0,0 +1,95 @@
+package org.muralis.batching.benchmark;
+
+import org.muralis.batching.model.Address;
+import org.muralis.batching.model.Beneficiary;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates customer files and beneficiary graphs for the benchmarks. A family is made of a
+ * primary and {@code familySize - 1} dependents; a family picked as invalid gets a bad first
+ * name, state and zip on every member.
+ */
+final class BenchmarkData {
+
+    private static final String[] FIRST_NAMES = {"STEVE", "MARY", "KATE", "DEREK", "KAREN", "DANNY"};
+    private static final String[] LAST_NAMES = {"WAUGH", "UNDERWOOD", "MORRISON"};
+    private static final String[] STREETS = {"84 Paterson St", "17 Townwalk Dr", "29 Nutmeg Lane"};
+    private static final String[] CITIES = {"Huntsville", "Hamden", "Columbus"};
+    private static final String[] STATES = {"AL", "CT", "OH"};
+    private static final String[] ZIPS = {"35801", "06414", "43215"};
+
+    private BenchmarkData() {
+    }
+
+    static Path customerFile(int families, int familySize, double invalidRatio) throws IOException {
+        Path file = Files.createTempFile("customers-", ".dat");
+        file.toFile().deleteOnExit();
+        SplittableRandom random = new SplittableRandom(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("~HDR|20250726|BENCHMARK|BENEFICIARIES\n");
+            for (int family = 0; family < families; family++) {
+                boolean invalid = random.nextDouble() < invalidRatio;
+                int pick = random.nextInt(STREETS.length);
+                for (int member = 0; member < familySize; member++) {
+                    writer.write("~PII~" + (1000 + family)
+                            + "|" + firstName(member, invalid)
+                            + "|" + LAST_NAMES[pick]
+                            + "|" + STREETS[pick]
+                            + "|" + CITIES[pick]
+                            + "|" + (invalid ? "OH!" : STATES[pick])
+                            + "|" + (invalid ? "43&215" : ZIPS[pick])
+                            + "|" + (member == 0 ? "" : "SP") + "|\n");
+                }
+            }
+            writer.write("~FTR|" + (long) families * familySize);
+        }
+        return file;
+    }
+
+    static List<Beneficiary> families(int families, int familySize, double invalidRatio) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<Beneficiary> result = new ArrayList<>(families);
+        for (int family = 0; family < families; family++) {
+            result.add(family(1000 + family, familySize, random.nextDouble() < invalidRatio));
+        }
+        return result;
+    }
+
+    static Beneficiary family(long personId, int familySize, boolean invalid) {
+        int pick = (int) (personId % STREETS.length);
+        Beneficiary primary = person(personId, 0, pick, invalid);
+        List<Beneficiary> dependents = new ArrayList<>();
+        for (int member = 1; member < familySize; member++) {
+            dependents.add(person(personId, member, pick, invalid));
+        }
+        primary.setDependents(dependents);
+        return primary;
+    }
+
+    private static Beneficiary person(long personId, int member, int pick, boolean invalid) {
+        return Beneficiary.builder()
+                .personId(personId)
+                .firstName(firstName(member, invalid))
+                .lastName(LAST_NAMES[pick])
+                .address(Address.builder()
+                        .street(STREETS[pick])
+                        .city(CITIES[pick])
+                        .state(invalid ? "OH!" : STATES[pick])
+                        .zip(invalid ? "43&215" : ZIPS[pick])
+                        .build())
+                .build();
+    }
+
+    private static String firstName(int member, boolean invalid) {
+        String name = FIRST_NAMES[member % FIRST_NAMES.length];
+        return invalid ? "D$" + name : name;
+    }
+}
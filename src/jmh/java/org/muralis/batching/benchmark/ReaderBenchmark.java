@@ -0,0 +1,67 @@
+package org.muralis.batching.benchmark;
+
+import org.muralis.batching.model.Beneficiary;
+import org.muralis.batching.reader.CustomerFileReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.core.io.FileSystemResource;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a generated customer file end to end; the score is in files per second, so divide by
+ * {@code families} for families per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReaderBenchmark {
+
+    @Param({"10000"})
+    int families;
+
+    @Param({"3"})
+    int familySize;
+
+    @Param({"0.1"})
+    double invalidRatio;
+
+    @Param({"false", "true"})
+    boolean memoryMapped;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws Exception {
+        file = BenchmarkData.customerFile(families, familySize, invalidRatio);
+    }
+
+    @Benchmark
+    public long readFile() throws Exception {
+        CustomerFileReader reader = new CustomerFileReader(new FileSystemResource(file), memoryMapped);
+        reader.open(new ExecutionContext());
+        try {
+            long count = 0;
+            for (Beneficiary family = reader.read(); family != null; family = reader.read()) {
+                count += family.getDependents().size() + 1;
+            }
+            return count;
+        } finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.muralis.batching.benchmark;
+
+import io.vavr.control.Validation;
+import org.muralis.batching.model.Address;
+import org.muralis.batching.model.Beneficiary;
+import org.muralis.batching.processor.BeneficiaryValidationProcessor;
+import org.muralis.batching.validator.AddressValidator;
+import org.muralis.batching.validator.BeneficiaryValidator;
+import org.muralis.batching.validator.CompositeValidator;
+import org.muralis.batching.validator.Validatable;
+import org.muralis.batching.validator.ValidationErrors;
+import org.muralis.batching.validator.Validator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validates single families through {@link CompositeValidator} and
+ * {@link BeneficiaryValidationProcessor}, and a generated batch with a configurable share of
+ * invalid families. Scores are in operations (families or batches) per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidationBenchmark {
+
+    @Param({"3"})
+    int familySize;
+
+    @Param({"0.3"})
+    double invalidRatio;
+
+    private CompositeValidator validator;
+    private BeneficiaryValidationProcessor processor;
+    private Beneficiary validFamily;
+    private Beneficiary invalidFamily;
+    private List<Beneficiary> batch;
+
+    @Setup
+    public void setUp() {
+        Map<Class<? extends Validatable>, Validator<?>> validatorMap = new HashMap<>();
+        validatorMap.put(Beneficiary.class, new BeneficiaryValidator());
+        validatorMap.put(Address.class, new AddressValidator());
+        validator = new CompositeValidator(validatorMap);
+        processor = new BeneficiaryValidationProcessor((Validator) validator);
+        validFamily = BenchmarkData.family(1000, familySize, false);
+        invalidFamily = BenchmarkData.family(2000, familySize, true);
+        batch = BenchmarkData.families(1000, familySize, invalidRatio);
+    }
+
+    @Benchmark
+    public Validation<ValidationErrors, Validatable> validateValidFamily() {
+        return validator.validate(validFamily);
+    }
+
+    @Benchmark
+    public Validation<ValidationErrors, Validatable> validateInvalidFamily() {
+        return validator.validate(invalidFamily);
+    }
+
+    @Benchmark
+    public Object processValidFamily() {
+        return processor.process(validFamily);
+    }
+
+    @Benchmark
+    public Object processInvalidFamily() {
+        return processor.process(invalidFamily);
+    }
+
+    @Benchmark
+    public void processBatch(Blackhole blackhole) {
+        for (Beneficiary family : batch) {
+            blackhole.consume(processor.process(family));
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.muralis.batching.benchmark;
+
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.muralis.batching.configuration.OutputWriterFactory;
+import org.muralis.batching.model.Beneficiary;
+import org.muralis.batching.model.InvalidBeneficiary;
+import org.muralis.batching.writer.OutputFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamWriter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Marshals chunks of valid and invalid beneficiaries into a temporary file through the writers
+ * built by {@link OutputWriterFactory}. The output is XML through the JAXB or the streaming
+ * writer, or the delimited or binary format, which only have a streaming writer. Scores are in
+ * chunks per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriterBenchmark {
+
+    @Param({"10"})
+    int chunkSize;
+
+    @Param({"3"})
+    int familySize;
+
+    @Param({OutputWriterFactory.JAXB, OutputWriterFactory.STREAMING, "delimited", "binary"})
+    String output;
+
+    private Chunk<Beneficiary> validChunk;
+    private Chunk<InvalidBeneficiary> invalidChunk;
+    private Path validFile;
+    private Path invalidFile;
+    private ItemStreamWriter<Beneficiary> validWriter;
+    private ItemStreamWriter<InvalidBeneficiary> invalidWriter;
+
+    @Setup
+    public void setUp() throws Exception {
+        validChunk = new Chunk<>(BenchmarkData.families(chunkSize, familySize, 0.0));
+        invalidChunk = new Chunk<>();
+        for (Beneficiary family : BenchmarkData.families(chunkSize, familySize, 1.0)) {
+            invalidChunk.add(InvalidBeneficiary.builder()
+                    .beneficiary(family)
+                    .errors(List.of("First Name contains invalid characters: '$'",
+                            "Address: State must be 2 characters long",
+                            "Address: Zip must be 5 digits long"))
+                    .build());
+        }
+        validFile = Files.createTempFile("customers-", ".xml");
+        invalidFile = Files.createTempFile("invalid-customers-", ".xml");
+    }
+
+    @Setup(Level.Iteration)
+    public void openWriters() throws Exception {
+        boolean xml = output.equals(OutputWriterFactory.JAXB) || output.equals(OutputWriterFactory.STREAMING);
+        OutputFormat format = xml ? OutputFormat.XML : OutputFormat.of(output);
+        OutputWriterFactory outputWriterFactory = new OutputWriterFactory(xml ? output : OutputWriterFactory.STREAMING,
+                format, format, new CompositeMeterRegistry());
+        validWriter = outputWriterFactory.createValidWriter(validFile.toString());
+        invalidWriter = outputWriterFactory.createInvalidWriter(invalidFile.toString());
+        validWriter.open(new ExecutionContext());
+        invalidWriter.open(new ExecutionContext());
+    }
+
+    @TearDown(Level.Iteration)
+    public void closeWriters() {
+        validWriter.close();
+        invalidWriter.close();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        Files.deleteIfExists(validFile);
+        Files.deleteIfExists(invalidFile);
+    }
+
+    @Benchmark
+    public void writeValidChunk() throws Exception {
+        validWriter.write(validChunk);
+    }
+
+    @Benchmark
+    public void writeInvalidChunk() throws Exception {
+        invalidWriter.write(invalidChunk);
+    }
+}
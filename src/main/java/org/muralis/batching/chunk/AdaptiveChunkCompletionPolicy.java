@@ -0,0 +1,164 @@
+package org.muralis.batching.chunk;
+
+import org.muralis.batching.model.Address;
+import org.muralis.batching.model.Beneficiary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.repeat.RepeatContext;
+import org.springframework.batch.repeat.RepeatStatus;
+import org.springframework.batch.repeat.policy.CompletionPolicySupport;
+
+/**
+ * A chunk completion policy that sizes each chunk from what the previous one cost.
+ * <p>
+ * Every chunk is timed from {@code beforeChunk} to the end of the write (the per-item work) and
+ * from there to {@code afterChunk}, which runs after the commit (the fixed cost of the stream
+ * updates, the job repository update and the commit). The next chunk is made large enough that
+ * the fixed cost stays under {@code targetCommitShare} of the chunk time, but small enough to
+ * finish within {@code maxChunkMillis}. Both timings are smoothed over recent chunks, since a
+ * single commit can be slowed by a pause that says nothing about the next one. The size changes
+ * by at most a factor of two per chunk and stays within {@code [minChunkSize, maxChunkSize]}.
+ * <p>
+ * A chunk is also completed once the estimated input size of the families read into it reaches
+ * {@code maxChunkBytes}, if that limit is positive.
+ * <p>
+ * The policy keeps per-step state, so it must be step scoped.
+ */
+public class AdaptiveChunkCompletionPolicy extends CompletionPolicySupport
+        implements ChunkListener, ItemReadListener<Beneficiary>, ItemWriteListener<Object> {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveChunkCompletionPolicy.class);
+
+    /** The {@code ~PII~} prefix, eight delimiters and the line terminator of a record. */
+    private static final int RECORD_OVERHEAD_BYTES = 14;
+
+    /** The weight of the latest chunk in the smoothed timings. */
+    private static final double SMOOTHING = 0.3;
+
+    private final int minChunkSize;
+    private final int maxChunkSize;
+    private final double targetCommitShare;
+    private final long maxChunkNanos;
+    private final long maxChunkBytes;
+
+    private int chunkSize;
+    private int chunkItems;
+    private long chunkBytes;
+    private long chunkStart;
+    private long writeEnd;
+    private double commitNanos;
+    private double workNanosPerItem;
+
+    public AdaptiveChunkCompletionPolicy(int initialChunkSize, int minChunkSize, int maxChunkSize,
+                                         double targetCommitShare, long maxChunkMillis, long maxChunkBytes) {
+        if (minChunkSize < 1 || maxChunkSize < minChunkSize) {
+            throw new IllegalArgumentException("Invalid chunk size bounds [" + minChunkSize + ", " + maxChunkSize + "]");
+        }
+        if (targetCommitShare <= 0 || targetCommitShare >= 1) {
+            throw new IllegalArgumentException("Target commit share must be between 0 and 1: " + targetCommitShare);
+        }
+        this.minChunkSize = minChunkSize;
+        this.maxChunkSize = maxChunkSize;
+        this.targetCommitShare = targetCommitShare;
+        this.maxChunkNanos = maxChunkMillis * 1_000_000L;
+        this.maxChunkBytes = maxChunkBytes;
+        this.chunkSize = Math.max(minChunkSize, Math.min(maxChunkSize, initialChunkSize));
+    }
+
+    @Override
+    public RepeatContext start(RepeatContext parent) {
+        chunkItems = 0;
+        chunkBytes = 0;
+        return super.start(parent);
+    }
+
+    @Override
+    public boolean isComplete(RepeatContext context) {
+        return context.getStartedCount() >= chunkSize || (maxChunkBytes > 0 && chunkBytes >= maxChunkBytes);
+    }
+
+    @Override
+    public boolean isComplete(RepeatContext context, RepeatStatus result) {
+        return super.isComplete(context, result) || isComplete(context);
+    }
+
+    @Override
+    public void beforeChunk(ChunkContext context) {
+        chunkStart = System.nanoTime();
+        writeEnd = 0;
+    }
+
+    @Override
+    public void afterRead(Beneficiary item) {
+        chunkItems++;
+        chunkBytes += estimateBytes(item);
+        if (item.getDependents() != null) {
+            for (Beneficiary dependent : item.getDependents()) {
+                chunkBytes += estimateBytes(dependent);
+            }
+        }
+    }
+
+    @Override
+    public void afterWrite(Chunk<?> items) {
+        writeEnd = System.nanoTime();
+    }
+
+    @Override
+    public void afterChunk(ChunkContext context) {
+        if (chunkItems == 0 || writeEnd == 0) {
+            return;
+        }
+        long lastCommitNanos = System.nanoTime() - writeEnd;
+        double lastWorkNanosPerItem = (double) (writeEnd - chunkStart) / chunkItems;
+        if (workNanosPerItem == 0) {
+            commitNanos = lastCommitNanos;
+            workNanosPerItem = lastWorkNanosPerItem;
+        } else {
+            commitNanos += SMOOTHING * (lastCommitNanos - commitNanos);
+            workNanosPerItem += SMOOTHING * (lastWorkNanosPerItem - workNanosPerItem);
+        }
+        if (workNanosPerItem <= 0) {
+            return;
+        }
+
+        double sizeForShare = commitNanos * (1 - targetCommitShare) / (targetCommitShare * workNanosPerItem);
+        double sizeForDuration = maxChunkNanos / workNanosPerItem;
+        long target = (long) Math.ceil(Math.min(sizeForShare, sizeForDuration));
+        target = Math.max(chunkSize / 2, Math.min(chunkSize * 2L, target));
+        int nextChunkSize = (int) Math.max(minChunkSize, Math.min(maxChunkSize, target));
+
+        if (nextChunkSize != chunkSize) {
+            log.debug("Chunk of {} items took {} us per item and {} us to commit; next chunk size {}",
+                    chunkItems, (long) (lastWorkNanosPerItem / 1000), lastCommitNanos / 1000, nextChunkSize);
+            chunkSize = nextChunkSize;
+        }
+    }
+
+    private static long estimateBytes(Beneficiary beneficiary) {
+        long bytes = RECORD_OVERHEAD_BYTES + length(beneficiary.getPersonId())
+                + length(beneficiary.getFirstName()) + length(beneficiary.getLastName());
+        Address address = beneficiary.getAddress();
+        if (address != null) {
+            bytes += length(address.getStreet()) + length(address.getCity())
+                    + length(address.getState()) + length(address.getZip());
+        }
+        return bytes;
+    }
+
+    private static int length(Object value) {
+        return value == null ? 0 : value.toString().length();
+    }
+
+    /**
+     * @return the size the next chunk will be completed at
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+}
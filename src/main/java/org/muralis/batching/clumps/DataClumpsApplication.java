@@ -1,8 +1,7 @@
 package org.muralis.batching.clumps;
 
-import org.springframework.batch.core.Job;
-import org.springframework.batch.core.JobParameters;
-import org.springframework.batch.core.launch.JobLauncher;
+import org.muralis.batching.launch.CustomerFileJobLauncher;
+import org.muralis.batching.partition.PartitionWorker;
 import org.springframework.batch.core.configuration.annotation.EnableBatchProcessing;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -16,9 +15,11 @@ public class DataClumpsApplication {
 
 	public static void main(String[] args) throws Exception {
 		ConfigurableApplicationContext context = SpringApplication.run(DataClumpsApplication.class, args);
-		JobLauncher jobLauncher = context.getBean(JobLauncher.class);
-		Job job = context.getBean("customerFileLoadJob", Job.class);
-		int exitCode = jobLauncher.run(job, new JobParameters()).getExitStatus().getExitCode().equals("COMPLETED") ? 0 : 1;
+		if (context.getEnvironment().matchesProfiles(PartitionWorker.PROFILE)) {
+			context.getBean(PartitionWorker.class).run();
+			System.exit(0);
+		}
+		int exitCode = context.getBean(CustomerFileJobLauncher.class).run() ? 0 : 1;
 		System.exit(exitCode);
 	}
 
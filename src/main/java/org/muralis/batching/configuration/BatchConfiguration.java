@@ -1,40 +1,78 @@
 package org.muralis.batching.configuration;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.muralis.batching.chunk.AdaptiveChunkCompletionPolicy;
+import org.muralis.batching.incremental.FamilyHashIndexListener;
+import org.muralis.batching.launch.CustomerFileJobLauncher;
+import org.muralis.batching.metrics.JobSummaryWriter;
 import org.muralis.batching.model.Address;
 import org.muralis.batching.model.Beneficiary;
 import org.muralis.batching.model.InvalidBeneficiary;
 import org.muralis.batching.processor.BeneficiaryValidationProcessor;
 import org.muralis.batching.reader.CustomerFileReader;
+import org.muralis.batching.reader.TrailerCheck;
 import org.muralis.batching.validator.*;
 import org.muralis.batching.writer.BeneficiaryClassifierCompositeWriter;
-import org.muralis.batching.writer.SafeStaxEventItemWriter;
+import org.muralis.batching.writer.OutputFormat;
 import org.springframework.batch.core.Job;
 import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.explore.JobExplorer;
 import org.springframework.batch.core.job.builder.JobBuilder;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.listener.ExecutionContextPromotionListener;
 import org.springframework.batch.core.repository.JobRepository;
-import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemStreamWriter;
 import org.springframework.batch.item.ItemWriter;
-import org.springframework.batch.item.xml.StaxEventItemWriter;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
-import org.springframework.oxm.jaxb.Jaxb2Marshaller;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
 
+import javax.sql.DataSource;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.stream.Stream;
 
 @Configuration
 public class BatchConfiguration {
 
     @Value("${app.input.file}")
-    private Resource inputFile;
+    private String inputFile;
+
+    @Value("${app.input.files:}")
+    private String inputFiles;
+
+    @Value("${app.input.files.concurrency:1}")
+    private int inputFilesConcurrency;
+
+    @Value("${app.input.memory-mapped:false}")
+    private boolean memoryMapped;
+
+    @Value("${app.input.trailer-check:fail}")
+    private TrailerCheck trailerCheck;
+
+    @Value("${app.input.malformed-lines.max:0}")
+    private long maxMalformedLines;
+
+    @Value("${app.input.sort.enabled:false}")
+    private boolean sortInput;
+
+    @Value("${app.input.sort.buffer-size:64MB}")
+    private DataSize sortBufferSize;
+
+    @Value("${app.input.sort.temp-dir:}")
+    private String sortTempDirectory;
 
     @Value("${app.output.file.path}")
     private String outputFile;
@@ -42,75 +80,227 @@ public class BatchConfiguration {
     @Value("${app.output.file.path.invalid}")
     private String invalidOutputFile;
 
+    @Value("${app.output.file.path.quarantine}")
+    private String quarantineFile;
+
+    @Value("${app.output.writer:jaxb}")
+    private String outputWriter;
+
+    @Value("${app.output.format:xml}")
+    private String outputFormat;
+
+    @Value("${app.output.format.invalid:xml}")
+    private String invalidOutputFormat;
+
+    @Value("${app.output.concurrent-lanes:false}")
+    private boolean concurrentLanes;
+
+    @Value("${app.output.database.enabled:false}")
+    private boolean databaseOutput;
+
+    @Value("${app.partition.enabled:false}")
+    private boolean partitioned;
+
+    @Value("${app.processor.async.enabled:false}")
+    private boolean asyncProcessing;
+
+    @Value("${app.processor.async.concurrency:0}")
+    private int asyncConcurrency;
+
+    @Value("${app.processor.async.virtual-threads:true}")
+    private boolean asyncVirtualThreads;
+
+    @Value("${app.chunk.size:10}")
+    private int chunkSize;
+
+    @Value("${app.chunk.adaptive.enabled:false}")
+    private boolean adaptiveChunks;
+
+    @Value("${app.chunk.adaptive.min-size:10}")
+    private int adaptiveMinChunkSize;
+
+    @Value("${app.chunk.adaptive.max-size:5000}")
+    private int adaptiveMaxChunkSize;
+
+    @Value("${app.chunk.adaptive.target-commit-share:0.05}")
+    private double adaptiveTargetCommitShare;
+
+    @Value("${app.chunk.adaptive.max-chunk-millis:2000}")
+    private long adaptiveMaxChunkMillis;
+
+    @Value("${app.chunk.adaptive.max-bytes:0}")
+    private long adaptiveMaxChunkBytes;
+
+    @Value("${app.validator.address-cache.size:0}")
+    private int addressCacheSize;
+
+    @Value("${app.incremental.enabled:false}")
+    private boolean incremental;
+
+    @Value("${app.incremental.index-file:target/output/family-hashes.idx}")
+    private Path incrementalIndexFile;
+
     @Bean
     public Validator<Validatable> compositeValidator(Map<Class<? extends Validatable>, Validator<?>> validatorMap) {
         return new CompositeValidator(validatorMap);
     }
 
     @Bean
-    public Map<Class<? extends Validatable>, Validator<?>> validatorMap() {
+    public Map<Class<? extends Validatable>, Validator<?>> validatorMap(MeterRegistry meterRegistry) {
         Map<Class<? extends Validatable>, Validator<?>> map = new HashMap<>();
-        map.put(Beneficiary.class, new BeneficiaryValidator());
-        map.put(Address.class, new AddressValidator());
+        map.put(Beneficiary.class, new TimedValidator<>(new BeneficiaryValidator(), meterRegistry));
+        Validator<Address> addressValidator = new AddressValidator();
+        if (addressCacheSize > 0) {
+            addressValidator = new CachingAddressValidator(addressValidator, addressCacheSize, meterRegistry);
+        }
+        map.put(Address.class, new TimedValidator<>(addressValidator, AddressValidator.class.getSimpleName(), meterRegistry));
         return map;
     }
 
     @Bean
-    public CustomerFileReader customerFileReader() {
-        return new CustomerFileReader(inputFile);
+    @StepScope
+    public CustomerFileReader customerFileReader(
+            @Value("#{jobParameters['input.file'] ?: '${app.input.file}'}") Resource inputFile,
+            @Value("#{jobParameters['output.file.quarantine'] ?: '${app.output.file.path.quarantine}'}") String quarantineFile,
+            @Value("#{stepExecution}") StepExecution stepExecution,
+            MeterRegistry meterRegistry, OutputWriterFactory outputWriterFactory,
+            FamilyHashIndexListener familyHashIndexListener) {
+        CustomerFileReader reader = new CustomerFileReader(inputFile, memoryMapped);
+        reader.setMeterRegistry(meterRegistry);
+        reader.setTrailerCheck(trailerCheck);
+        reader.setQuarantine(outputWriterFactory.createQuarantineWriter(quarantineFile), maxMalformedLines);
+        if (sortInput) {
+            reader.setSortBuffer(sortBufferSize.toBytes(),
+                    sortTempDirectory.isBlank() ? null : Paths.get(sortTempDirectory));
+        }
+        if (incremental) {
+            reader.setFamilyHashIndex(familyHashIndexListener.indexFor(stepExecution.getJobExecution()));
+        }
+        return reader;
+    }
+
+    /**
+     * Loads and saves the content hashes of the families of the last successful run, used to
+     * skip unchanged families when incremental mode is enabled.
+     */
+    @Bean
+    public FamilyHashIndexListener familyHashIndexListener() {
+        return new FamilyHashIndexListener(incrementalIndexFile);
+    }
+
+    /**
+     * Promotes the file header, and the trailer check outcome of a single reader, from the
+     * reading step to the job execution context.
+     */
+    @Bean
+    public ExecutionContextPromotionListener feedPromotionListener() {
+        ExecutionContextPromotionListener listener = new ExecutionContextPromotionListener();
+        listener.setKeys(Stream.of(CustomerFileReader.HEADER_DATE_KEY, CustomerFileReader.HEADER_CLIENT_KEY,
+                        CustomerFileReader.HEADER_TYPE_KEY, CustomerFileReader.TRAILER_VERIFIED_KEY)
+                .map(CustomerFileReader::executionContextKey)
+                .toArray(String[]::new));
+        return listener;
+    }
+
+    @Bean
+    public OutputWriterFactory outputWriterFactory(MeterRegistry meterRegistry) {
+        return new OutputWriterFactory(outputWriter, OutputFormat.of(outputFormat), OutputFormat.of(invalidOutputFormat),
+                meterRegistry);
     }
 
     @Bean(destroyMethod = "")
-    public SafeStaxEventItemWriter<Beneficiary> customerItemWriter() throws IOException {
-        return new SafeStaxEventItemWriter<>(createWriter(outputFile, "beneficiaries", Beneficiary.class));
+    @StepScope
+    public ItemStreamWriter<Beneficiary> customerItemWriter(
+            OutputWriterFactory outputWriterFactory, ObjectProvider<DataSource> dataSource,
+            @Value("#{jobParameters['output.file'] ?: '${app.output.file.path}'}") String outputFile) throws IOException {
+        if (databaseOutput) {
+            return outputWriterFactory.createValidDatabaseWriter(dataSource.getObject());
+        }
+        return outputWriterFactory.createValidWriter(outputFile);
     }
 
     @Bean(destroyMethod = "")
-    public SafeStaxEventItemWriter<InvalidBeneficiary> invalidCustomerItemWriter() throws IOException {
-        return new SafeStaxEventItemWriter<>(createWriter(invalidOutputFile, "invalid-beneficiaries", InvalidBeneficiary.class));
+    @StepScope
+    public ItemStreamWriter<InvalidBeneficiary> invalidCustomerItemWriter(
+            OutputWriterFactory outputWriterFactory,
+            @Value("#{jobParameters['output.file.invalid'] ?: '${app.output.file.path.invalid}'}") String invalidOutputFile)
+            throws IOException {
+        return outputWriterFactory.createInvalidWriter(invalidOutputFile);
     }
 
-    private <T> StaxEventItemWriter<T> createWriter(String filePath, String rootTagName, Class<T> clazz) throws IOException {
-        Path path = Paths.get(filePath);
-        Files.createDirectories(path.getParent());
+    @Bean
+    @StepScope
+    public BeneficiaryClassifierCompositeWriter compositeItemWriter(
+            ItemStreamWriter<Beneficiary> customerItemWriter,
+            ItemStreamWriter<InvalidBeneficiary> invalidCustomerItemWriter) {
+        // The database writer must run on the chunk thread to join the chunk transaction
+        return new BeneficiaryClassifierCompositeWriter((ItemWriter) customerItemWriter, (ItemWriter) invalidCustomerItemWriter,
+                concurrentLanes && !databaseOutput);
+    }
 
-        StaxEventItemWriter<T> writer = new StaxEventItemWriter<>();
-        writer.setResource(new FileSystemResource(filePath));
-        writer.setMarshaller(marshaller(clazz));
-        writer.setRootTagName(rootTagName);
-        writer.setSaveState(false);
-        return writer;
+    @Bean
+    public TaskExecutor validationTaskExecutor() {
+        int concurrency = asyncConcurrency > 0 ? asyncConcurrency : Runtime.getRuntime().availableProcessors();
+        if (asyncVirtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("validation-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(concurrency);
+            return executor;
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setThreadNamePrefix("validation-");
+        return executor;
     }
 
-    private Jaxb2Marshaller marshaller(Class<?> type) {
-        Jaxb2Marshaller marshaller = new Jaxb2Marshaller();
-        marshaller.setClassesToBeBound(type);
-        return marshaller;
+    @Bean
+    @StepScope
+    public AdaptiveChunkCompletionPolicy adaptiveChunkCompletionPolicy() {
+        return new AdaptiveChunkCompletionPolicy(chunkSize, adaptiveMinChunkSize, adaptiveMaxChunkSize,
+                adaptiveTargetCommitShare, adaptiveMaxChunkMillis, adaptiveMaxChunkBytes);
     }
 
     @Bean
-    public BeneficiaryClassifierCompositeWriter compositeItemWriter(
-            SafeStaxEventItemWriter<Beneficiary> customerItemWriter,
-            SafeStaxEventItemWriter<InvalidBeneficiary> invalidCustomerItemWriter) {
-        return new BeneficiaryClassifierCompositeWriter((ItemWriter) customerItemWriter, (ItemWriter) invalidCustomerItemWriter);
+    public ChunkStepFactory chunkStepFactory(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                                             BeneficiaryValidationProcessor validationProcessor,
+                                             TaskExecutor validationTaskExecutor,
+                                             AdaptiveChunkCompletionPolicy adaptiveChunkCompletionPolicy) {
+        return new ChunkStepFactory(jobRepository, transactionManager, validationProcessor,
+                asyncProcessing ? validationTaskExecutor : null, chunkSize,
+                adaptiveChunks ? adaptiveChunkCompletionPolicy : null);
+    }
+
+    @Bean
+    public Step step1(ChunkStepFactory chunkStepFactory, BeneficiaryClassifierCompositeWriter compositeItemWriter,
+                      CustomerFileReader customerFileReader, ExecutionContextPromotionListener feedPromotionListener) {
+        return chunkStepFactory.createStep("step1", customerFileReader, compositeItemWriter, feedPromotionListener);
     }
 
     @Bean
-    public Step step1(JobRepository jobRepository, PlatformTransactionManager transactionManager,
-                      BeneficiaryClassifierCompositeWriter compositeItemWriter, CustomerFileReader customerFileReader,
-                      BeneficiaryValidationProcessor validationProcessor) {
-        return new StepBuilder("step1", jobRepository)
-                .<Beneficiary, Object>chunk(10, transactionManager)
-                .reader(customerFileReader)
-                .processor(validationProcessor)
-                .writer(compositeItemWriter)
-                .build();
+    public Job customerFileLoadJob(JobRepository jobRepository, Step step1, Step partitionedStep1, Step mergeStep,
+                                   FamilyHashIndexListener familyHashIndexListener,
+                                   JobSummaryWriter jobSummaryWriter) {
+        JobBuilder jobBuilder = new JobBuilder("customer-file-load", jobRepository)
+                .listener(jobSummaryWriter);
+        if (incremental) {
+            jobBuilder.listener(familyHashIndexListener);
+        }
+        if (partitioned) {
+            if (sortInput) {
+                // Partitions are byte ranges of the file, which only hold whole families if the
+                // file is sorted
+                throw new IllegalStateException("Sorted input is not supported with partitions");
+            }
+            return jobBuilder.start(partitionedStep1).next(mergeStep).build();
+        }
+        return jobBuilder.start(step1).build();
     }
 
     @Bean
-    public Job customerFileLoadJob(JobRepository jobRepository, Step step1) {
-        return new JobBuilder("customer-file-load", jobRepository)
-                .start(step1)
-                .build();
+    public CustomerFileJobLauncher customerFileJobLauncher(JobLauncher jobLauncher, JobExplorer jobExplorer,
+                                                           JobRepository jobRepository, Job customerFileLoadJob) {
+        return new CustomerFileJobLauncher(jobLauncher, jobExplorer, jobRepository, customerFileLoadJob, inputFile,
+                inputFiles, outputFile, invalidOutputFile, quarantineFile, incrementalIndexFile, inputFilesConcurrency);
     }
 }
@@ -0,0 +1,86 @@
+package org.muralis.batching.configuration;
+
+import org.muralis.batching.chunk.AdaptiveChunkCompletionPolicy;
+import org.muralis.batching.model.Beneficiary;
+import org.springframework.batch.core.ChunkListener;
+import org.springframework.batch.core.ItemReadListener;
+import org.springframework.batch.core.ItemWriteListener;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecutionListener;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.SimpleStepBuilder;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.integration.async.AsyncItemProcessor;
+import org.springframework.batch.integration.async.AsyncItemWriter;
+import org.springframework.batch.item.ItemProcessor;
+import org.springframework.batch.item.ItemReader;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Builds the read-validate-write chunk steps shared by the single and partitioned jobs.
+ * <p>
+ * When a validation executor is given, the processor is wrapped in an
+ * {@link AsyncItemProcessor} so the families of a chunk are validated concurrently, and the
+ * writer in an {@link AsyncItemWriter}, which waits for the results and hands them on in input
+ * order.
+ * <p>
+ * Chunks are completed at a fixed size, or by an {@link AdaptiveChunkCompletionPolicy} when one
+ * is given. The policy is also registered as a listener, so it must be step scoped.
+ */
+public class ChunkStepFactory {
+
+    private final JobRepository jobRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ItemProcessor<Beneficiary, Object> processor;
+    private final TaskExecutor validationTaskExecutor;
+    private final int chunkSize;
+    private final AdaptiveChunkCompletionPolicy adaptivePolicy;
+
+    public ChunkStepFactory(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                            ItemProcessor<Beneficiary, Object> processor, TaskExecutor validationTaskExecutor,
+                            int chunkSize, AdaptiveChunkCompletionPolicy adaptivePolicy) {
+        this.jobRepository = jobRepository;
+        this.transactionManager = transactionManager;
+        this.processor = processor;
+        this.validationTaskExecutor = validationTaskExecutor;
+        this.chunkSize = chunkSize;
+        this.adaptivePolicy = adaptivePolicy;
+    }
+
+    public Step createStep(String name, ItemReader<Beneficiary> reader, ItemWriter<Object> writer,
+                           StepExecutionListener... listeners) {
+        StepBuilder stepBuilder = new StepBuilder(name, jobRepository);
+        for (StepExecutionListener listener : listeners) {
+            stepBuilder.listener(listener);
+        }
+        if (validationTaskExecutor == null) {
+            return build(stepBuilder, reader, processor, writer);
+        }
+
+        AsyncItemProcessor<Beneficiary, Object> asyncProcessor = new AsyncItemProcessor<>();
+        asyncProcessor.setDelegate(processor);
+        asyncProcessor.setTaskExecutor(validationTaskExecutor);
+        AsyncItemWriter<Object> asyncWriter = new AsyncItemWriter<>();
+        asyncWriter.setDelegate(writer);
+        return build(stepBuilder, reader, asyncProcessor, asyncWriter);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private <O> Step build(StepBuilder stepBuilder, ItemReader<Beneficiary> reader,
+                           ItemProcessor<Beneficiary, O> processor, ItemWriter<O> writer) {
+        SimpleStepBuilder<Beneficiary, O> builder = adaptivePolicy == null
+                ? stepBuilder.chunk(chunkSize, transactionManager)
+                : stepBuilder.chunk(adaptivePolicy, transactionManager);
+        builder.reader(reader)
+                .processor(processor)
+                .writer(writer);
+        if (adaptivePolicy != null) {
+            builder.listener((ChunkListener) adaptivePolicy);
+            builder.listener((ItemReadListener<Beneficiary>) adaptivePolicy);
+            builder.listener((ItemWriteListener) adaptivePolicy);
+        }
+        return builder.build();
+    }
+}
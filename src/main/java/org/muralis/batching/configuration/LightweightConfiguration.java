@@ -0,0 +1,65 @@
+package org.muralis.batching.configuration;
+
+import org.muralis.batching.launch.LightweightJobExplorer;
+import org.muralis.batching.launch.LightweightJobRepository;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.support.transaction.ResourcelessTransactionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Runs file-to-file loads without a database. The job repository only holds the running
+ * execution in memory, so nothing is written per chunk, and chunks are committed without a
+ * transaction. The profile's properties leave out the data source and the schema
+ * initialization.
+ * <p>
+ * As there is no history, a failed load cannot be restarted and is loaded again from the start.
+ * The repository holds a single execution, so input files are loaded one at a time, and
+ * partitions cannot be handed to worker processes.
+ */
+@Configuration
+@Profile(LightweightConfiguration.PROFILE)
+public class LightweightConfiguration {
+
+    public static final String PROFILE = "lightweight";
+
+    @Value("${app.input.files:}")
+    private String inputFiles;
+
+    @Value("${app.input.files.concurrency:1}")
+    private int inputFilesConcurrency;
+
+    @Value("${app.output.database.enabled:false}")
+    private boolean databaseOutput;
+
+    @Value("${app.partition.remote.enabled:false}")
+    private boolean remotePartitions;
+
+    @Bean
+    public JobRepository jobRepository() {
+        if (databaseOutput) {
+            throw new IllegalStateException("Database output is not supported in the " + PROFILE + " profile");
+        }
+        if (remotePartitions) {
+            throw new IllegalStateException("Remote partitions are not supported in the " + PROFILE + " profile");
+        }
+        if (!inputFiles.isBlank() && inputFilesConcurrency > 1) {
+            throw new IllegalStateException("Input files can only be loaded one at a time in the " + PROFILE + " profile");
+        }
+        return new LightweightJobRepository();
+    }
+
+    @Bean
+    public JobExplorer jobExplorer() {
+        return new LightweightJobExplorer();
+    }
+
+    @Bean
+    public PlatformTransactionManager transactionManager() {
+        return new ResourcelessTransactionManager();
+    }
+}
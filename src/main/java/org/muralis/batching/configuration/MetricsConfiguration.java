@@ -0,0 +1,46 @@
+package org.muralis.batching.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.muralis.batching.metrics.JobSummaryWriter;
+import org.muralis.batching.metrics.MetricsReporter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * The local registry the reader, validators, processor and writers report to, and the reporter
+ * that logs it every {@code app.metrics.report-interval} and, if {@code app.metrics.json-file}
+ * is set, dumps it to that file. If {@code app.metrics.summary-file} is set, a summary of every
+ * job execution is appended to that file once it finishes.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    @Value("${app.metrics.report-interval:30s}")
+    private Duration reportInterval;
+
+    @Value("${app.metrics.json-file:}")
+    private String jsonFile;
+
+    @Value("${app.metrics.summary-file:}")
+    private String summaryFile;
+
+    @Bean
+    public MeterRegistry meterRegistry() {
+        return new SimpleMeterRegistry();
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public MetricsReporter metricsReporter(MeterRegistry meterRegistry) {
+        return new MetricsReporter(meterRegistry, reportInterval, jsonFile.isBlank() ? null : Paths.get(jsonFile));
+    }
+
+    @Bean
+    public JobSummaryWriter jobSummaryWriter() {
+        return new JobSummaryWriter(summaryFile.isBlank() ? null : Paths.get(summaryFile));
+    }
+}
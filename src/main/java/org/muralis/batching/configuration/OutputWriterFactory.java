@@ -0,0 +1,167 @@
+package org.muralis.batching.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.muralis.batching.io.Compression;
+import org.muralis.batching.model.Beneficiary;
+import org.muralis.batching.model.InvalidBeneficiary;
+import org.muralis.batching.model.MalformedLine;
+import org.muralis.batching.writer.BeneficiaryBinaryRecords;
+import org.muralis.batching.writer.BeneficiaryCopyItemWriter;
+import org.muralis.batching.writer.BeneficiaryDelimitedLines;
+import org.muralis.batching.writer.BeneficiaryXmlElements;
+import org.muralis.batching.writer.BinaryItemWriter;
+import org.muralis.batching.writer.DelimitedItemWriter;
+import org.muralis.batching.writer.DelimitedLineWriter;
+import org.muralis.batching.writer.MeteredItemWriter;
+import org.muralis.batching.writer.OutputFormat;
+import org.muralis.batching.writer.SafeStaxEventItemWriter;
+import org.muralis.batching.writer.StreamingXmlItemWriter;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.xml.StaxEventItemWriter;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.oxm.jaxb.Jaxb2Marshaller;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Creates the valid and invalid beneficiary output writers, each in its own
+ * {@link OutputFormat}.
+ * <p>
+ * XML is marshalled either by JAXB through a {@link StaxEventItemWriter} ({@code jaxb}) or
+ * written directly by a {@link StreamingXmlItemWriter} ({@code streaming}); both produce the
+ * same bytes. Compressed outputs ({@code .gz}, {@code .deflate}) are always written by the
+ * streaming writer, since the StAX writer can only write to a plain file. Delimited and binary
+ * outputs are written by a {@link DelimitedItemWriter} and a {@link BinaryItemWriter}.
+ * <p>
+ * Valid beneficiaries may instead be loaded into the database by a
+ * {@link BeneficiaryCopyItemWriter}.
+ * <p>
+ * Lines rejected by the reader are always written as delimited lines holding the line number,
+ * the reason and the raw line.
+ * <p>
+ * The file writers save their position under distinct names, so a restarted step continues
+ * both outputs from the last committed chunk.
+ * <p>
+ * Every writer is wrapped in a {@link MeteredItemWriter} reporting to the given registry.
+ */
+public class OutputWriterFactory {
+
+    public static final String JAXB = "jaxb";
+    public static final String STREAMING = "streaming";
+
+    private static final String VALID_WRITER_NAME = "validWriter";
+    private static final String INVALID_WRITER_NAME = "invalidWriter";
+    private static final String QUARANTINE_WRITER_NAME = "quarantineWriter";
+
+    private final String writerType;
+    private final OutputFormat validFormat;
+    private final OutputFormat invalidFormat;
+    private final MeterRegistry meterRegistry;
+
+    public OutputWriterFactory(String writerType) {
+        this(writerType, OutputFormat.XML, OutputFormat.XML, new CompositeMeterRegistry());
+    }
+
+    public OutputWriterFactory(String writerType, OutputFormat validFormat, OutputFormat invalidFormat,
+                               MeterRegistry meterRegistry) {
+        if (!JAXB.equals(writerType) && !STREAMING.equals(writerType)) {
+            throw new IllegalArgumentException("Unknown output writer: " + writerType);
+        }
+        this.writerType = writerType;
+        this.validFormat = validFormat;
+        this.invalidFormat = invalidFormat;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public OutputFormat getValidFormat() {
+        return validFormat;
+    }
+
+    public OutputFormat getInvalidFormat() {
+        return invalidFormat;
+    }
+
+    public ItemStreamWriter<Beneficiary> createValidWriter(String filePath) throws IOException {
+        ItemStreamWriter<Beneficiary> writer = switch (validFormat) {
+            case DELIMITED -> new DelimitedItemWriter<>(filePath, BeneficiaryDelimitedLines::beneficiary);
+            case BINARY -> new BinaryItemWriter<>(filePath, BeneficiaryBinaryRecords::beneficiary);
+            case XML -> streaming(filePath)
+                    ? new StreamingXmlItemWriter<>(filePath, "beneficiaries", BeneficiaryXmlElements::beneficiary)
+                    : new SafeStaxEventItemWriter<>(
+                            createStaxWriter(filePath, "beneficiaries", Beneficiary.class, VALID_WRITER_NAME));
+        };
+        return metered(writer, filePath, "valid", VALID_WRITER_NAME);
+    }
+
+    public ItemStreamWriter<InvalidBeneficiary> createInvalidWriter(String filePath) throws IOException {
+        ItemStreamWriter<InvalidBeneficiary> writer = switch (invalidFormat) {
+            case DELIMITED -> new DelimitedItemWriter<>(filePath, BeneficiaryDelimitedLines::invalidBeneficiary);
+            case BINARY -> new BinaryItemWriter<>(filePath, BeneficiaryBinaryRecords::invalidBeneficiary);
+            case XML -> streaming(filePath)
+                    ? new StreamingXmlItemWriter<>(filePath, "invalid-beneficiaries", BeneficiaryXmlElements::invalidBeneficiary)
+                    : new SafeStaxEventItemWriter<>(
+                            createStaxWriter(filePath, "invalid-beneficiaries", InvalidBeneficiary.class, INVALID_WRITER_NAME));
+        };
+        return metered(writer, filePath, "invalid", INVALID_WRITER_NAME);
+    }
+
+    public ItemStreamWriter<MalformedLine> createQuarantineWriter(String filePath) {
+        return metered(new DelimitedItemWriter<>(filePath, OutputWriterFactory::malformedLine), filePath,
+                "quarantine", QUARANTINE_WRITER_NAME);
+    }
+
+    /**
+     * @return a writer loading valid beneficiaries into the database instead of a file
+     */
+    public ItemStreamWriter<Beneficiary> createValidDatabaseWriter(DataSource dataSource) {
+        return new MeteredItemWriter<>(new BeneficiaryCopyItemWriter(dataSource), null, "valid", meterRegistry);
+    }
+
+    private static void malformedLine(DelimitedLineWriter out, MalformedLine malformedLine) throws IOException {
+        out.startLine("");
+        out.field(malformedLine.getLineNumber());
+        out.field(malformedLine.getReason());
+        out.field(malformedLine.getLine());
+        out.endLine();
+    }
+
+    private boolean streaming(String filePath) {
+        return STREAMING.equals(writerType) || Compression.of(filePath).isCompressed();
+    }
+
+    /**
+     * Wraps a writer in a {@link MeteredItemWriter}, first naming it if it keeps state in the
+     * step execution context.
+     */
+    private <T> ItemStreamWriter<T> metered(ItemStreamWriter<T> writer, String filePath, String output, String name) {
+        if (writer instanceof ItemStreamSupport stateful) {
+            stateful.setName(name);
+        }
+        return new MeteredItemWriter<>(writer, filePath, output, meterRegistry);
+    }
+
+    private <T> StaxEventItemWriter<T> createStaxWriter(String filePath, String rootTagName, Class<T> clazz, String name)
+            throws IOException {
+        Path path = Paths.get(filePath);
+        Files.createDirectories(path.getParent());
+
+        StaxEventItemWriter<T> writer = new StaxEventItemWriter<>();
+        writer.setResource(new FileSystemResource(filePath));
+        writer.setMarshaller(marshaller(clazz));
+        writer.setRootTagName(rootTagName);
+        writer.setName(name);
+        return writer;
+    }
+
+    private Jaxb2Marshaller marshaller(Class<?> type) {
+        Jaxb2Marshaller marshaller = new Jaxb2Marshaller();
+        marshaller.setClassesToBeBound(type);
+        return marshaller;
+    }
+}
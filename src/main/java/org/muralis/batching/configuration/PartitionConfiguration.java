@@ -0,0 +1,235 @@
+package org.muralis.batching.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.muralis.batching.incremental.FamilyHashIndexListener;
+import org.muralis.batching.model.Beneficiary;
+import org.muralis.batching.model.InvalidBeneficiary;
+import org.muralis.batching.partition.FamilyAlignedPartitioner;
+import org.muralis.batching.partition.PartitionWorker;
+import org.muralis.batching.partition.RepositoryPollingPartitionHandler;
+import org.muralis.batching.partition.TrailerVerifyingAggregator;
+import org.muralis.batching.reader.CustomerFileReader;
+import org.muralis.batching.reader.TrailerCheck;
+import org.muralis.batching.writer.BeneficiaryClassifierCompositeWriter;
+import org.muralis.batching.writer.OutputFormat;
+import org.muralis.batching.writer.ShardMergeTasklet;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.configuration.annotation.StepScope;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.listener.ExecutionContextPromotionListener;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.step.builder.StepBuilder;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.ItemWriter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Beans for the partitioned variant of step1, used when {@code app.partition.enabled} is set.
+ * The manager step splits the input into family-aligned byte ranges and runs a worker step per
+ * range on {@link #partitionTaskExecutor()}. Every worker writes its own output shards, which
+ * {@code mergeStep} concatenates into the configured output files.
+ * <p>
+ * With {@code app.partition.remote.enabled}, the ranges are left in the job repository for
+ * processes started with the {@value PartitionWorker#PROFILE} profile to run instead, and the
+ * manager step polls the repository until they are done. The workers must see the input and
+ * output files at the same paths as the manager.
+ */
+@Configuration
+public class PartitionConfiguration {
+
+    private static final String WORKER_STEP_NAME = "step1Worker";
+    private static final String REMOTE_WORKER_STEP_NAME = "step1RemoteWorker";
+
+    @Value("${app.input.memory-mapped:false}")
+    private boolean memoryMapped;
+
+    @Value("${app.input.trailer-check:fail}")
+    private TrailerCheck trailerCheck;
+
+    @Value("${app.input.malformed-lines.max:0}")
+    private long maxMalformedLines;
+
+    @Value("${app.output.concurrent-lanes:false}")
+    private boolean concurrentLanes;
+
+    @Value("${app.output.database.enabled:false}")
+    private boolean databaseOutput;
+
+    @Value("${app.incremental.enabled:false}")
+    private boolean incremental;
+
+    @Value("${app.partition.grid-size:0}")
+    private int gridSize;
+
+    @Value("${app.partition.threads:0}")
+    private int threads;
+
+    @Value("${app.partition.remote.enabled:false}")
+    private boolean remote;
+
+    @Value("${app.partition.remote.poll-interval:1s}")
+    private Duration pollInterval;
+
+    @Value("${app.partition.remote.timeout:0s}")
+    private Duration remoteTimeout;
+
+    @Value("${app.partition.worker.idle-timeout:0s}")
+    private Duration workerIdleTimeout;
+
+    @Bean
+    @StepScope
+    public FamilyAlignedPartitioner familyAlignedPartitioner(
+            @Value("#{jobParameters['input.file'] ?: '${app.input.file}'}") Resource inputFile) {
+        return new FamilyAlignedPartitioner(inputFile);
+    }
+
+    @Bean
+    public TaskExecutor partitionTaskExecutor() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setThreadNamePrefix("partition-");
+        return executor;
+    }
+
+    @Bean
+    @StepScope
+    public CustomerFileReader partitionFileReader(
+            @Value("#{jobParameters['input.file'] ?: '${app.input.file}'}") Resource inputFile,
+            @Value("#{stepExecutionContext['startOffset']}") Long startOffset,
+            @Value("#{stepExecutionContext['endOffset']}") Long endOffset,
+            @Value("#{stepExecutionContext['partition']}") Integer partition,
+            @Value("#{jobParameters['output.file.quarantine'] ?: '${app.output.file.path.quarantine}'}") String quarantineFile,
+            @Value("#{stepExecution}") StepExecution stepExecution,
+            MeterRegistry meterRegistry, OutputWriterFactory outputWriterFactory,
+            FamilyHashIndexListener familyHashIndexListener) {
+        CustomerFileReader reader = new CustomerFileReader(inputFile, memoryMapped, startOffset, endOffset);
+        reader.setMeterRegistry(meterRegistry);
+        reader.setQuarantine(outputWriterFactory.createQuarantineWriter(ShardMergeTasklet.shardPath(quarantineFile, partition)),
+                maxMalformedLines);
+        if (incremental) {
+            reader.setFamilyHashIndex(familyHashIndexListener.indexFor(stepExecution.getJobExecution()));
+        }
+        return reader;
+    }
+
+    @Bean
+    @StepScope
+    public BeneficiaryClassifierCompositeWriter partitionItemWriter(
+            OutputWriterFactory outputWriterFactory, ObjectProvider<DataSource> dataSource,
+            @Value("#{stepExecutionContext['partition']}") Integer partition,
+            @Value("#{jobParameters['output.file'] ?: '${app.output.file.path}'}") String outputFile,
+            @Value("#{jobParameters['output.file.invalid'] ?: '${app.output.file.path.invalid}'}") String invalidOutputFile)
+            throws IOException {
+        ItemStreamWriter<Beneficiary> validWriter = databaseOutput
+                ? outputWriterFactory.createValidDatabaseWriter(dataSource.getObject())
+                : outputWriterFactory.createValidWriter(ShardMergeTasklet.shardPath(outputFile, partition));
+        ItemStreamWriter<InvalidBeneficiary> invalidWriter = outputWriterFactory.createInvalidWriter(
+                ShardMergeTasklet.shardPath(invalidOutputFile, partition));
+        return new BeneficiaryClassifierCompositeWriter((ItemWriter) validWriter, (ItemWriter) invalidWriter,
+                concurrentLanes && !databaseOutput);
+    }
+
+    @Bean
+    public Step step1Worker(ChunkStepFactory chunkStepFactory, CustomerFileReader partitionFileReader,
+                            BeneficiaryClassifierCompositeWriter partitionItemWriter,
+                            ExecutionContextPromotionListener feedPromotionListener) {
+        return chunkStepFactory.createStep(WORKER_STEP_NAME, partitionFileReader, partitionItemWriter,
+                feedPromotionListener);
+    }
+
+    /**
+     * The worker step run by worker processes. It only differs from {@link #step1Worker} in its
+     * name, so that workers never claim the partitions of a job partitioned within its process.
+     */
+    @Bean
+    public Step step1RemoteWorker(ChunkStepFactory chunkStepFactory, CustomerFileReader partitionFileReader,
+                                  BeneficiaryClassifierCompositeWriter partitionItemWriter,
+                                  ExecutionContextPromotionListener feedPromotionListener) {
+        return chunkStepFactory.createStep(REMOTE_WORKER_STEP_NAME, partitionFileReader, partitionItemWriter,
+                feedPromotionListener);
+    }
+
+    @Bean
+    public Step partitionedStep1(JobRepository jobRepository, JobExplorer jobExplorer,
+                                 FamilyAlignedPartitioner familyAlignedPartitioner, Step step1Worker,
+                                 TaskExecutor partitionTaskExecutor) {
+        int partitions = gridSize > 0 ? gridSize : Runtime.getRuntime().availableProcessors();
+        TrailerVerifyingAggregator aggregator = new TrailerVerifyingAggregator(trailerCheck,
+                CustomerFileReader.executionContextKey(CustomerFileReader.RECORD_COUNT_KEY),
+                CustomerFileReader.executionContextKey(CustomerFileReader.MALFORMED_COUNT_KEY),
+                CustomerFileReader.executionContextKey(CustomerFileReader.TRAILER_KEY),
+                CustomerFileReader.executionContextKey(CustomerFileReader.TRAILER_VERIFIED_KEY));
+        if (remote) {
+            if (incremental) {
+                // The family hash index is loaded and saved by the manager only
+                throw new IllegalStateException("Incremental mode is not supported with remote partitions");
+            }
+            RepositoryPollingPartitionHandler partitionHandler = new RepositoryPollingPartitionHandler(jobExplorer,
+                    jobRepository, pollInterval, remoteTimeout);
+            partitionHandler.setGridSize(partitions);
+            return new StepBuilder("partitionedStep1", jobRepository)
+                    .partitioner(REMOTE_WORKER_STEP_NAME, familyAlignedPartitioner)
+                    .partitionHandler(partitionHandler)
+                    .aggregator(aggregator)
+                    .build();
+        }
+        return new StepBuilder("partitionedStep1", jobRepository)
+                .partitioner(WORKER_STEP_NAME, familyAlignedPartitioner)
+                .step(step1Worker)
+                .aggregator(aggregator)
+                .gridSize(partitions)
+                .taskExecutor(partitionTaskExecutor)
+                .build();
+    }
+
+    @Bean
+    @Profile(PartitionWorker.PROFILE)
+    public PartitionWorker partitionWorker(JobExplorer jobExplorer, JobRepository jobRepository,
+                                           Job customerFileLoadJob, Step step1RemoteWorker) {
+        int concurrency = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new PartitionWorker(jobExplorer, jobRepository, customerFileLoadJob.getName(), step1RemoteWorker,
+                concurrency, pollInterval, workerIdleTimeout);
+    }
+
+    @Bean
+    @StepScope
+    public ShardMergeTasklet shardMergeTasklet(
+            OutputWriterFactory outputWriterFactory,
+            @Value("#{jobParameters['output.file'] ?: '${app.output.file.path}'}") String outputFile,
+            @Value("#{jobParameters['output.file.invalid'] ?: '${app.output.file.path.invalid}'}") String invalidOutputFile,
+            @Value("#{jobParameters['output.file.quarantine'] ?: '${app.output.file.path.quarantine}'}") String quarantineFile) {
+        Map<String, OutputFormat> outputs = new HashMap<>();
+        if (!databaseOutput) {
+            outputs.put(outputFile, outputWriterFactory.getValidFormat());
+        }
+        outputs.put(invalidOutputFile, outputWriterFactory.getInvalidFormat());
+        outputs.put(quarantineFile, OutputFormat.DELIMITED);
+        return new ShardMergeTasklet(outputs);
+    }
+
+    @Bean
+    public Step mergeStep(JobRepository jobRepository, PlatformTransactionManager transactionManager,
+                          ShardMergeTasklet shardMergeTasklet) {
+        return new StepBuilder("mergeStep", jobRepository)
+                .tasklet(shardMergeTasklet, transactionManager)
+                .build();
+    }
+}
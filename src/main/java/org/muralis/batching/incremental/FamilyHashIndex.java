@@ -0,0 +1,222 @@
+package org.muralis.batching.incremental;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The content hash of every family of the last successful run, keyed by family id, used to
+ * skip families that have not changed since.
+ * <p>
+ * An index serves a single job execution, which {@link FamilyHashIndexListener} loads it for
+ * before the job starts. Readers then look families up with {@link #unchanged} and record the
+ * hash of every family they read, changed or not, through their own {@link Recorder}. Only when
+ * the job completes are the recorded hashes written to a temporary file that atomically
+ * replaces the index; a failed or stopped job leaves the previous index in place.
+ * <p>
+ * The hashes recorded before a failure are lost, and a restarted reader only records the
+ * families after the offset it resumes from. The previous hash of every family that was not
+ * recorded is therefore carried over into the new index, so that a restart does not shrink it.
+ * A family read, and changed, before the restart keeps its previous hash and is processed
+ * again by the next run, which errs on the side of reprocessing. Families that disappear from
+ * the file are carried over too. The index file should be deleted whenever the validation
+ * rules change.
+ */
+public class FamilyHashIndex {
+
+    private static final int MAGIC = 0x46484931; // "FHI1"
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final Path path;
+    private final List<Recorder> recorders = new ArrayList<>();
+
+    private volatile LongHashMap previous = new LongHashMap(0);
+
+    public FamilyHashIndex(Path path) {
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the number of hashes loaded, none if the index file does not exist yet
+     */
+    public int size() {
+        return previous.size();
+    }
+
+    /**
+     * @return whether the family had the same hash in the last successful run
+     */
+    public boolean unchanged(long familyId, long hash) {
+        return previous.matches(familyId, hash);
+    }
+
+    /**
+     * @return a new recorder for the hashes read by one reader
+     */
+    public Recorder recorder() {
+        Recorder recorder = new Recorder();
+        synchronized (recorders) {
+            recorders.add(recorder);
+        }
+        return recorder;
+    }
+
+    /**
+     * Loads the hashes of the last successful run from the index file, if there is one.
+     */
+    public void load() throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a family hash index");
+            }
+            int count = Math.toIntExact(in.readLong());
+            LongHashMap map = new LongHashMap(count);
+            for (int i = 0; i < count; i++) {
+                map.put(in.readLong(), in.readLong());
+            }
+            previous = map;
+        }
+    }
+
+    /**
+     * Replaces the index file with the hashes recorded by this run, and the previous hashes of
+     * the families it did not record.
+     *
+     * @return the number of hashes saved
+     */
+    public long save() throws IOException {
+        long count = 0;
+        synchronized (recorders) {
+            for (Recorder recorder : recorders) {
+                count += recorder.size / 2;
+            }
+            // The slots of the previous hashes to carry over, those of the families not recorded
+            LongHashMap previous = this.previous;
+            boolean[] carried = previous.used.clone();
+            for (Recorder recorder : recorders) {
+                for (int i = 0; i < recorder.size; i += 2) {
+                    carried[previous.slot(recorder.entries[i])] = false;
+                }
+            }
+            for (boolean carry : carried) {
+                if (carry) {
+                    count++;
+                }
+            }
+            Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try {
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), BUFFER_SIZE))) {
+                    out.writeInt(MAGIC);
+                    out.writeLong(count);
+                    for (Recorder recorder : recorders) {
+                        for (int i = 0; i < recorder.size; i++) {
+                            out.writeLong(recorder.entries[i]);
+                        }
+                    }
+                    for (int slot = 0; slot < previous.keys.length; slot++) {
+                        if (carried[slot]) {
+                            out.writeLong(previous.keys[slot]);
+                            out.writeLong(previous.values[slot]);
+                        }
+                    }
+                }
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Collects the family ids and hashes read by a single reader. Not thread-safe.
+     */
+    public static final class Recorder {
+
+        private long[] entries = new long[1024];
+        private int size;
+
+        private Recorder() {
+        }
+
+        public void record(long familyId, long hash) {
+            if (size + 2 > entries.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+            entries[size++] = familyId;
+            entries[size++] = hash;
+        }
+    }
+
+    /**
+     * An open-addressing map from family id to hash over two primitive arrays, so that millions
+     * of entries take 32 bytes or less each rather than two boxed longs and a map entry.
+     */
+    private static final class LongHashMap {
+
+        private final long[] keys;
+        private final long[] values;
+        private final boolean[] used;
+        private final int mask;
+        private int size;
+
+        LongHashMap(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(2, expected * 2 - 1)) << 1;
+            keys = new long[capacity];
+            values = new long[capacity];
+            used = new boolean[capacity];
+            mask = capacity - 1;
+        }
+
+        void put(long key, long value) {
+            int slot = slot(key);
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                size++;
+            }
+            values[slot] = value;
+        }
+
+        boolean matches(long key, long value) {
+            int slot = slot(key);
+            return used[slot] && values[slot] == value;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private int slot(long key) {
+            int slot = (int) mix(key) & mask;
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static long mix(long key) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            return key;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.muralis.batching.incremental;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.item.ItemStreamException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads a {@link FamilyHashIndex} for every job execution before it starts, and saves it once
+ * the execution has completed.
+ * <p>
+ * The index file is taken from the {@link #INDEX_FILE_PARAMETER} job parameter, or the default
+ * path when there is none, so that concurrent executions for different input files each keep
+ * their own index.
+ */
+public class FamilyHashIndexListener implements JobExecutionListener {
+
+    public static final String INDEX_FILE_PARAMETER = "incremental.index-file";
+
+    private static final Logger log = LoggerFactory.getLogger(FamilyHashIndexListener.class);
+
+    private final Path defaultPath;
+    private final Map<Long, FamilyHashIndex> indexes = new ConcurrentHashMap<>();
+
+    public FamilyHashIndexListener(Path defaultPath) {
+        this.defaultPath = defaultPath;
+    }
+
+    @Override
+    public void beforeJob(JobExecution jobExecution) {
+        String indexFile = jobExecution.getJobParameters().getString(INDEX_FILE_PARAMETER);
+        FamilyHashIndex index = new FamilyHashIndex(indexFile == null ? defaultPath : Paths.get(indexFile));
+        try {
+            index.load();
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to load family hash index " + index.getPath(), e);
+        }
+        log.info("Loaded {} family hashes from {}", index.size(), index.getPath());
+        indexes.put(jobExecution.getId(), index);
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        FamilyHashIndex index = indexes.remove(jobExecution.getId());
+        if (index == null || jobExecution.getStatus() != BatchStatus.COMPLETED) {
+            return;
+        }
+        try {
+            long count = index.save();
+            log.info("Saved {} family hashes to {}", count, index.getPath());
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to save family hash index " + index.getPath(), e);
+        }
+    }
+
+    /**
+     * @return the index loaded for the given job execution
+     */
+    public FamilyHashIndex indexFor(JobExecution jobExecution) {
+        FamilyHashIndex index = indexes.get(jobExecution.getId());
+        if (index == null) {
+            throw new IllegalStateException("No family hash index loaded for job execution " + jobExecution.getId());
+        }
+        return index;
+    }
+}
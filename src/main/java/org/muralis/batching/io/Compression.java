@@ -0,0 +1,72 @@
+package org.muralis.batching.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The compression of an input or output file, chosen by its extension: {@code .gz} for gzip,
+ * {@code .deflate} for a zlib stream, anything else for none.
+ */
+public enum Compression {
+
+    NONE(""),
+    GZIP(".gz"),
+    DEFLATE(".deflate");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String extension;
+
+    Compression(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * @return the compression for a file name or path, {@link #NONE} if it is {@code null}
+     */
+    public static Compression of(String fileName) {
+        if (fileName != null) {
+            for (Compression compression : values()) {
+                if (compression != NONE && fileName.endsWith(compression.extension)) {
+                    return compression;
+                }
+            }
+        }
+        return NONE;
+    }
+
+    public boolean isCompressed() {
+        return this != NONE;
+    }
+
+    /**
+     * @return the given file name, which must have been classified as this compression,
+     * without its extension
+     */
+    public String strip(String fileName) {
+        return fileName.substring(0, fileName.length() - extension.length());
+    }
+
+    public InputStream decompress(InputStream in) throws IOException {
+        return switch (this) {
+            case NONE -> in;
+            case GZIP -> new GZIPInputStream(in, BUFFER_SIZE);
+            case DEFLATE -> new InflaterInputStream(in, new Inflater(), BUFFER_SIZE);
+        };
+    }
+
+    public OutputStream compress(OutputStream out) throws IOException {
+        return switch (this) {
+            case NONE -> out;
+            case GZIP -> new GZIPOutputStream(out, BUFFER_SIZE);
+            case DEFLATE -> new DeflaterOutputStream(out, new Deflater(), BUFFER_SIZE);
+        };
+    }
+}
@@ -0,0 +1,147 @@
+package org.muralis.batching.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads an input stream on a background thread into a small ring of buffers, so that slow
+ * reads such as decompression overlap with the work of the consuming thread.
+ * <p>
+ * Buffers are handed over through a bounded queue and returned to the reading thread once
+ * consumed, so memory use is fixed at {@code buffers * bufferSize}. A failure of the
+ * background read is rethrown to the consumer when it reaches that point of the stream.
+ */
+public class ReadAheadInputStream extends InputStream {
+
+    private static final Block END = new Block(null, 0, null);
+
+    private record Block(byte[] data, int length, IOException failure) {
+    }
+
+    private final InputStream in;
+    private final BlockingQueue<Block> filled;
+    private final BlockingQueue<byte[]> free;
+    private final Thread reader;
+
+    private Block current;
+    private int position;
+    private boolean ended;
+    private volatile boolean closed;
+
+    public ReadAheadInputStream(InputStream in, int bufferSize, int buffers) {
+        this.in = in;
+        this.filled = new ArrayBlockingQueue<>(buffers + 1);
+        this.free = new ArrayBlockingQueue<>(buffers);
+        for (int i = 0; i < buffers; i++) {
+            free.add(new byte[bufferSize]);
+        }
+        this.reader = new Thread(this::fill, "read-ahead");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    private void fill() {
+        try {
+            while (!closed) {
+                byte[] buffer = free.take();
+                int length;
+                try {
+                    length = in.readNBytes(buffer, 0, buffer.length);
+                } catch (IOException e) {
+                    filled.put(new Block(null, 0, e));
+                    return;
+                }
+                if (length > 0) {
+                    filled.put(new Block(buffer, length, null));
+                }
+                if (length < buffer.length) {
+                    filled.put(END);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed while waiting for a buffer or for the consumer
+        }
+    }
+
+    /**
+     * @return whether a block with unread bytes is current, taking the next one if needed
+     */
+    private boolean nextBlock() throws IOException {
+        if (current != null && position < current.length) {
+            return true;
+        }
+        if (ended) {
+            return false;
+        }
+        if (current != null) {
+            free.add(current.data);
+            current = null;
+        }
+        Block block;
+        try {
+            block = filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for input", e);
+        }
+        if (block.failure != null) {
+            ended = true;
+            throw new IOException("Failed to read ahead", block.failure);
+        }
+        if (block == END) {
+            ended = true;
+            return false;
+        }
+        current = block;
+        position = 0;
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        return nextBlock() ? current.data[position++] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextBlock()) {
+            return -1;
+        }
+        int count = Math.min(len, current.length - position);
+        System.arraycopy(current.data, position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && nextBlock()) {
+            int count = (int) Math.min(n - skipped, current.length - position);
+            position += count;
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        reader.interrupt();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        in.close();
+    }
+}
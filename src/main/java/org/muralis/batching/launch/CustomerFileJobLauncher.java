@@ -0,0 +1,306 @@
+package org.muralis.batching.launch;
+
+import org.muralis.batching.incremental.FamilyHashIndexListener;
+import org.muralis.batching.io.Compression;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameter;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * Launches the customer file load job, either once for the configured input file, or once per
+ * customer file in a directory or matching a glob, with up to {@code concurrency} files loaded
+ * at a time in the same JVM.
+ * <p>
+ * The input and output files are always passed as job parameters, so that the job repository
+ * tells worker processes which files a partitioned execution reads and writes.
+ * <p>
+ * Every file is loaded with its own job parameters: the input file, and the configured output
+ * and family hash index file names in a directory named after the input file, next to the
+ * configured output. For {@code in/clientA.dat} and {@code target/output/customers.xml}, the
+ * valid beneficiaries are written to {@code target/output/clientA/customers.xml}.
+ * <p>
+ * A directory is searched for {@code .dat} files, compressed or not. A glob may only appear in
+ * the last path element, as in {@code in/client*.dat}.
+ * <p>
+ * The size and last modification time of the input file are identifying job parameters too, so
+ * that a file replaced after a failure, even under the same name, is loaded as a new file.
+ * <p>
+ * If the last execution for the same file failed or was stopped, it is restarted with its own
+ * parameters and resumes from its last committed chunk. Otherwise a new job instance is
+ * started with the next {@code run.id}. An execution still marked as running is taken to have
+ * been left behind by a process that died, since only one launcher runs the job at a time; it is
+ * marked as failed and restarted.
+ * <p>
+ * Compressed output cannot be resumed at a chunk boundary, so an execution that failed while
+ * writing to a {@code .gz} or {@code .deflate} output is marked as abandoned instead, and the
+ * file is loaded again from the start by a new job instance.
+ */
+public class CustomerFileJobLauncher {
+
+    public static final String INPUT_FILE_PARAMETER = "input.file";
+    public static final String INPUT_FILE_SIZE_PARAMETER = "input.file.size";
+    public static final String INPUT_FILE_MODIFIED_PARAMETER = "input.file.modified";
+    public static final String OUTPUT_FILE_PARAMETER = "output.file";
+    public static final String INVALID_OUTPUT_FILE_PARAMETER = "output.file.invalid";
+    public static final String QUARANTINE_FILE_PARAMETER = "output.file.quarantine";
+    public static final String RUN_ID_PARAMETER = "run.id";
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerFileJobLauncher.class);
+
+    private static final String CUSTOMER_FILE_EXTENSION = ".dat";
+    private static final int RESTART_SEARCH_DEPTH = 1000;
+
+    private final ResourceLoader resourceLoader = new DefaultResourceLoader();
+    private final JobLauncher jobLauncher;
+    private final JobExplorer jobExplorer;
+    private final JobRepository jobRepository;
+    private final Job job;
+    private final String inputFile;
+    private final String inputFiles;
+    private final Path outputFile;
+    private final Path invalidOutputFile;
+    private final Path quarantineFile;
+    private final Path indexFile;
+    private final int concurrency;
+
+    /**
+     * @param inputFile  the resource location of the input file loaded when there are no input
+     *                   files
+     * @param inputFiles a directory or glob of customer files, or blank for the input file
+     */
+    public CustomerFileJobLauncher(JobLauncher jobLauncher, JobExplorer jobExplorer, JobRepository jobRepository, Job job,
+                                   String inputFile, String inputFiles, String outputFile, String invalidOutputFile,
+                                   String quarantineFile, Path indexFile, int concurrency) {
+        this.jobLauncher = jobLauncher;
+        this.jobExplorer = jobExplorer;
+        this.jobRepository = jobRepository;
+        this.job = job;
+        this.inputFile = inputFile;
+        this.inputFiles = inputFiles;
+        this.outputFile = Paths.get(outputFile);
+        this.invalidOutputFile = Paths.get(invalidOutputFile);
+        this.quarantineFile = Paths.get(quarantineFile);
+        this.indexFile = indexFile;
+        this.concurrency = Math.max(1, concurrency);
+    }
+
+    /**
+     * @return whether every launched job completed
+     */
+    public boolean run() throws Exception {
+        if (inputFiles == null || inputFiles.isBlank()) {
+            JobParameters parameters = addFileVersion(new JobParametersBuilder()
+                    .addString(INPUT_FILE_PARAMETER, inputFile), resourceLoader.getResource(inputFile))
+                    .addString(OUTPUT_FILE_PARAMETER, outputFile.toString())
+                    .addString(INVALID_OUTPUT_FILE_PARAMETER, invalidOutputFile.toString())
+                    .addString(QUARANTINE_FILE_PARAMETER, quarantineFile.toString())
+                    .toJobParameters();
+            return jobLauncher.run(job, launchParameters(parameters)).getStatus() == BatchStatus.COMPLETED;
+        }
+
+        List<Path> files = resolve(inputFiles);
+        if (files.isEmpty()) {
+            log.warn("No customer files found for {}", inputFiles);
+            return true;
+        }
+        log.info("Loading {} customer files, {} at a time", files.size(), Math.min(concurrency, files.size()));
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(concurrency, files.size()),
+                new CustomizableThreadFactory("file-"));
+        try {
+            List<Future<BatchStatus>> results = new ArrayList<>();
+            for (Path file : files) {
+                results.add(executor.submit(() -> load(file)));
+            }
+            boolean completed = true;
+            for (Future<BatchStatus> result : results) {
+                completed &= result.get() == BatchStatus.COMPLETED;
+            }
+            return completed;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private BatchStatus load(Path file) {
+        String name = baseName(file);
+        JobParameters parameters = addFileVersion(new JobParametersBuilder()
+                .addString(INPUT_FILE_PARAMETER, file.toUri().toString()), new FileSystemResource(file))
+                .addString(OUTPUT_FILE_PARAMETER, perFile(outputFile, name))
+                .addString(INVALID_OUTPUT_FILE_PARAMETER, perFile(invalidOutputFile, name))
+                .addString(QUARANTINE_FILE_PARAMETER, perFile(quarantineFile, name))
+                .addString(FamilyHashIndexListener.INDEX_FILE_PARAMETER, perFile(indexFile, name))
+                .toJobParameters();
+        try {
+            JobExecution execution = jobLauncher.run(job, launchParameters(parameters));
+            log.info("Customer file {} finished with status {}", file, execution.getStatus());
+            return execution.getStatus();
+        } catch (Exception e) {
+            log.error("Failed to launch the job for customer file {}", file, e);
+            return BatchStatus.FAILED;
+        }
+    }
+
+    /**
+     * @return the parameters of the last execution for the same file parameters if it can be
+     * restarted, or else the file parameters with the next run id
+     */
+    private JobParameters launchParameters(JobParameters fileParameters) {
+        long lastRunId = 0;
+        JobExecution lastExecution = null;
+        for (JobInstance instance : jobExplorer.getJobInstances(job.getName(), 0, RESTART_SEARCH_DEPTH)) {
+            JobExecution execution = jobExplorer.getLastJobExecution(instance);
+            if (execution == null) {
+                continue;
+            }
+            Long runId = execution.getJobParameters().getLong(RUN_ID_PARAMETER);
+            lastRunId = Math.max(lastRunId, runId == null ? 0 : runId);
+            if (lastExecution == null && sameFile(execution.getJobParameters(), fileParameters)) {
+                lastExecution = execution;
+            }
+        }
+
+        if (lastExecution != null && lastExecution.isRunning()) {
+            abandon(lastExecution);
+        }
+        if (lastExecution != null && (lastExecution.getStatus() == BatchStatus.FAILED
+                || lastExecution.getStatus() == BatchStatus.STOPPED)) {
+            if (!compressedOutput(lastExecution.getJobParameters())) {
+                log.info("Restarting job execution {} with {}", lastExecution.getId(), lastExecution.getJobParameters());
+                return lastExecution.getJobParameters();
+            }
+            log.warn("Job execution {} wrote compressed output, which cannot be resumed; abandoning it to load "
+                    + "the file again from the start", lastExecution.getId());
+            lastExecution.setStatus(BatchStatus.ABANDONED);
+            jobRepository.update(lastExecution);
+        }
+        return new JobParametersBuilder(fileParameters)
+                .addLong(RUN_ID_PARAMETER, lastRunId + 1)
+                .toJobParameters();
+    }
+
+    /**
+     * Adds the size and last modification time of the input file, when it can be read, to the
+     * identifying parameters.
+     */
+    private static JobParametersBuilder addFileVersion(JobParametersBuilder builder, Resource input) {
+        try {
+            return builder.addLong(INPUT_FILE_SIZE_PARAMETER, input.contentLength())
+                    .addLong(INPUT_FILE_MODIFIED_PARAMETER, input.lastModified());
+        } catch (IOException e) {
+            log.warn("Cannot read the size and modification time of {}; it is identified by name only", input, e);
+            return builder;
+        }
+    }
+
+    private static boolean compressedOutput(JobParameters parameters) {
+        for (String key : List.of(OUTPUT_FILE_PARAMETER, INVALID_OUTPUT_FILE_PARAMETER, QUARANTINE_FILE_PARAMETER)) {
+            String path = parameters.getString(key);
+            if (path != null && Compression.of(Paths.get(path).getFileName().toString()).isCompressed()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean sameFile(JobParameters parameters, JobParameters fileParameters) {
+        Map<String, JobParameter<?>> others = new HashMap<>(parameters.getParameters());
+        others.remove(RUN_ID_PARAMETER);
+        return others.equals(fileParameters.getParameters());
+    }
+
+    /**
+     * Marks an execution, and its steps, left running by a process that died as failed.
+     */
+    private void abandon(JobExecution execution) {
+        log.warn("Job execution {} is still marked {}; marking it as failed", execution.getId(), execution.getStatus());
+        LocalDateTime now = LocalDateTime.now();
+        ExitStatus exitStatus = ExitStatus.FAILED.addExitDescription("Left running by a process that stopped");
+        for (StepExecution stepExecution : execution.getStepExecutions()) {
+            if (stepExecution.getStatus().isRunning()) {
+                stepExecution.setStatus(BatchStatus.FAILED);
+                stepExecution.setExitStatus(exitStatus);
+                stepExecution.setEndTime(now);
+                jobRepository.update(stepExecution);
+            }
+        }
+        execution.setStatus(BatchStatus.FAILED);
+        execution.setExitStatus(exitStatus);
+        execution.setEndTime(now);
+        jobRepository.update(execution);
+    }
+
+    /**
+     * @return the customer files in a directory, or the files matching a glob, sorted by path
+     */
+    private static List<Path> resolve(String location) throws IOException {
+        Path path = Paths.get(location);
+        Path directory;
+        PathMatcher matcher;
+        if (Files.isDirectory(path)) {
+            directory = path;
+            matcher = file -> stripCompression(file).endsWith(CUSTOMER_FILE_EXTENSION);
+        } else {
+            directory = path.getParent() == null ? Paths.get(".") : path.getParent();
+            PathMatcher glob = FileSystems.getDefault().getPathMatcher("glob:" + path.getFileName());
+            matcher = file -> glob.matches(file.getFileName());
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(matcher::matches)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * @return the file name without its compression and {@code .dat} extensions
+     */
+    private static String baseName(Path file) {
+        String name = stripCompression(file);
+        return name.endsWith(CUSTOMER_FILE_EXTENSION)
+                ? name.substring(0, name.length() - CUSTOMER_FILE_EXTENSION.length())
+                : name;
+    }
+
+    private static String stripCompression(Path file) {
+        String name = file.getFileName().toString();
+        return Compression.of(name).strip(name);
+    }
+
+    private static String perFile(Path path, String name) {
+        return path.resolveSibling(name).resolve(path.getFileName()).toString();
+    }
+}
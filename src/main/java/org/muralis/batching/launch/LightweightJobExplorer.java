@@ -0,0 +1,61 @@
+package org.muralis.batching.launch;
+
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The explorer of a {@link LightweightJobRepository}, which keeps no history: it finds no job
+ * instance or execution, so every load is started as a new run and none is restarted.
+ */
+public class LightweightJobExplorer implements JobExplorer {
+
+    @Override
+    public List<JobInstance> getJobInstances(String jobName, int start, int count) {
+        return List.of();
+    }
+
+    @Override
+    public JobExecution getJobExecution(Long executionId) {
+        return null;
+    }
+
+    @Override
+    public StepExecution getStepExecution(Long jobExecutionId, Long stepExecutionId) {
+        return null;
+    }
+
+    @Override
+    public JobInstance getJobInstance(Long instanceId) {
+        return null;
+    }
+
+    @Override
+    public List<JobExecution> getJobExecutions(JobInstance jobInstance) {
+        return List.of();
+    }
+
+    @Override
+    public Set<JobExecution> findRunningJobExecutions(String jobName) {
+        return Set.of();
+    }
+
+    @Override
+    public List<String> getJobNames() {
+        return List.of();
+    }
+
+    @Override
+    public List<JobInstance> findJobInstancesByJobName(String jobName, int start, int count) {
+        return List.of();
+    }
+
+    @Override
+    public long getJobInstanceCount(String jobName) {
+        return 0;
+    }
+}
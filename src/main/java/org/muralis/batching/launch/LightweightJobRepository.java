@@ -0,0 +1,20 @@
+package org.muralis.batching.launch;
+
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.repository.support.ResourcelessJobRepository;
+
+/**
+ * A job repository that only holds the running job execution in memory, and saves nothing.
+ * <p>
+ * It has no earlier step execution to restart from. The resourceless repository it extends
+ * would instead return the step executions of the running job execution, so a partition step
+ * execution, once created, would look like a restart of itself.
+ */
+public class LightweightJobRepository extends ResourcelessJobRepository {
+
+    @Override
+    public StepExecution getLastStepExecution(JobInstance jobInstance, String stepName) {
+        return null;
+    }
+}
@@ -0,0 +1,101 @@
+package org.muralis.batching.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobExecutionListener;
+import org.springframework.batch.core.JobParameter;
+import org.springframework.batch.core.StepExecution;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Appends a summary of every finished job execution to a file, as a line of JSON with the job
+ * parameters, the status and times of the execution, and the counts of each of its steps. It
+ * keeps a record of the runs when the job repository does not.
+ */
+public class JobSummaryWriter implements JobExecutionListener {
+
+    private static final Logger log = LoggerFactory.getLogger(JobSummaryWriter.class);
+
+    private final Path file;
+
+    /**
+     * @param file the file to append the summaries to, or {@code null} to write none
+     */
+    public JobSummaryWriter(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public void afterJob(JobExecution jobExecution) {
+        if (file == null) {
+            return;
+        }
+        try {
+            append(summary(jobExecution));
+        } catch (IOException e) {
+            log.warn("Failed to write the summary of job execution {} to {}", jobExecution.getId(), file, e);
+        }
+    }
+
+    private synchronized void append(String line) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.writeString(file, line, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static String summary(JobExecution jobExecution) {
+        StringBuilder json = new StringBuilder("{\"job\": ")
+                .append(MetricsReporter.quote(jobExecution.getJobInstance().getJobName()))
+                .append(", \"parameters\": {");
+        Map<String, JobParameter<?>> parameters = jobExecution.getJobParameters().getParameters();
+        String separator = "";
+        for (Map.Entry<String, JobParameter<?>> parameter : parameters.entrySet()) {
+            json.append(separator).append(MetricsReporter.quote(parameter.getKey())).append(": ")
+                    .append(MetricsReporter.quote(String.valueOf(parameter.getValue().getValue())));
+            separator = ", ";
+        }
+        json.append("}, \"status\": ").append(MetricsReporter.quote(jobExecution.getStatus().name()))
+                .append(", \"exitCode\": ").append(MetricsReporter.quote(jobExecution.getExitStatus().getExitCode()))
+                .append(", \"start\": ").append(time(jobExecution.getStartTime()))
+                .append(", \"end\": ").append(time(jobExecution.getEndTime()))
+                .append(", \"durationMs\": ")
+                .append(durationMs(jobExecution.getStartTime(), jobExecution.getEndTime()))
+                .append(", \"steps\": [");
+        // Without a job repository assigning ids, a step execution may be listed more than once
+        Set<StepExecution> stepExecutions = new LinkedHashSet<>(jobExecution.getStepExecutions());
+        separator = "";
+        for (StepExecution stepExecution : stepExecutions) {
+            json.append(separator)
+                    .append("{\"name\": ").append(MetricsReporter.quote(stepExecution.getStepName()))
+                    .append(", \"status\": ").append(MetricsReporter.quote(stepExecution.getStatus().name()))
+                    .append(", \"read\": ").append(stepExecution.getReadCount())
+                    .append(", \"written\": ").append(stepExecution.getWriteCount())
+                    .append(", \"filtered\": ").append(stepExecution.getFilterCount())
+                    .append(", \"skipped\": ").append(stepExecution.getSkipCount())
+                    .append(", \"commits\": ").append(stepExecution.getCommitCount())
+                    .append(", \"durationMs\": ")
+                    .append(durationMs(stepExecution.getStartTime(), stepExecution.getEndTime()))
+                    .append("}");
+            separator = ", ";
+        }
+        return json.append("]}\n").toString();
+    }
+
+    private static String time(LocalDateTime time) {
+        return time == null ? "null" : MetricsReporter.quote(time.toString());
+    }
+
+    private static String durationMs(LocalDateTime start, LocalDateTime end) {
+        return start == null || end == null ? "null" : Long.toString(Duration.between(start, end).toMillis());
+    }
+}
@@ -0,0 +1,187 @@
+package org.muralis.batching.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically logs every meter of a registry, one line per meter, and optionally writes them
+ * to a JSON file. A last report is made on close, so a run always ends with its final figures.
+ * <p>
+ * Timers are reported as their count and their total, mean and maximum time in milliseconds,
+ * counters and gauges as their value. The JSON file is replaced atomically on every report,
+ * keeping the permissions of the file it replaces, or readable by all for a new file.
+ */
+public class MetricsReporter implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricsReporter.class);
+
+    private static final Comparator<Meter> METER_ORDER = Comparator
+            .comparing((Meter meter) -> meter.getId().getName())
+            .thenComparing(meter -> meter.getId().getTags().toString());
+    private static final Set<PosixFilePermission> JSON_FILE_PERMISSIONS = PosixFilePermissions.fromString("rw-r--r--");
+
+    private final MeterRegistry meterRegistry;
+    private final Duration interval;
+    private final Path jsonFile;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param interval the time between reports, or zero to report on close only
+     * @param jsonFile the file to write the meters to, or {@code null} to only log them
+     */
+    public MetricsReporter(MeterRegistry meterRegistry, Duration interval, Path jsonFile) {
+        this.meterRegistry = meterRegistry;
+        this.interval = interval;
+        this.jsonFile = jsonFile;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null || interval.isZero() || interval.isNegative()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        scheduler.scheduleAtFixedRate(this::report, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void report() {
+        List<Meter> meters = meterRegistry.getMeters().stream().sorted(METER_ORDER).toList();
+        if (meters.isEmpty()) {
+            return;
+        }
+        for (Meter meter : meters) {
+            log.info("{}{} {}", meter.getId().getName(), tags(meter), String.join(" ", values(meter).entrySet().stream()
+                    .map(value -> value.getKey() + "=" + format(value.getValue()))
+                    .toList()));
+        }
+        if (jsonFile != null) {
+            try {
+                writeJson(meters);
+            } catch (IOException e) {
+                log.warn("Failed to write metrics to {}", jsonFile, e);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        report();
+    }
+
+    private Map<String, Double> values(Meter meter) {
+        Map<String, Double> values = new LinkedHashMap<>();
+        if (meter instanceof Timer timer) {
+            values.put("count", (double) timer.count());
+            values.put("totalMs", timer.totalTime(TimeUnit.MILLISECONDS));
+            values.put("meanMs", timer.mean(TimeUnit.MILLISECONDS));
+            values.put("maxMs", timer.max(TimeUnit.MILLISECONDS));
+        } else if (meter instanceof Counter counter) {
+            values.put("count", counter.count());
+        } else if (meter instanceof Gauge gauge) {
+            values.put("value", gauge.value());
+        } else {
+            meter.measure().forEach(measurement ->
+                    values.put(measurement.getStatistic().getTagValueRepresentation(), measurement.getValue()));
+        }
+        return values;
+    }
+
+    private void writeJson(List<Meter> meters) throws IOException {
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; i < meters.size(); i++) {
+            Meter meter = meters.get(i);
+            json.append("  {\"name\": ").append(quote(meter.getId().getName()))
+                    .append(", \"type\": ").append(quote(meter.getId().getType().name().toLowerCase(Locale.ROOT)))
+                    .append(", \"tags\": {");
+            List<Tag> tags = meter.getId().getTags();
+            for (int j = 0; j < tags.size(); j++) {
+                json.append(j == 0 ? "" : ", ").append(quote(tags.get(j).getKey())).append(": ")
+                        .append(quote(tags.get(j).getValue()));
+            }
+            json.append("}");
+            values(meter).forEach((key, value) -> json.append(", ").append(quote(key)).append(": ")
+                    .append(Double.isFinite(value) ? format(value) : "null"));
+            json.append(i == meters.size() - 1 ? "}\n" : "},\n");
+        }
+        json.append("]\n");
+
+        Path directory = jsonFile.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, jsonFile.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(temp, json, StandardCharsets.UTF_8);
+            // A temporary file is only readable by its owner
+            if (Files.getFileStore(temp).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                Files.setPosixFilePermissions(temp, Files.exists(jsonFile)
+                        ? Files.getPosixFilePermissions(jsonFile) : JSON_FILE_PERMISSIONS);
+            }
+            Files.move(temp, jsonFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static String tags(Meter meter) {
+        List<Tag> tags = meter.getId().getTags();
+        if (tags.isEmpty()) {
+            return "";
+        }
+        return "{" + String.join(",", tags.stream().map(tag -> tag.getKey() + "=" + tag.getValue()).toList()) + "}";
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15
+                ? Long.toString((long) value)
+                : String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    static String quote(String value) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < ' ') {
+                quoted.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
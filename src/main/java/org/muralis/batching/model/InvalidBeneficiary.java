@@ -23,6 +23,7 @@ public class InvalidBeneficiary {
     @XmlElement(name = "beneficiary")
     private Beneficiary beneficiary;
 
+    // Usually a ValidationErrors, whose messages are only rendered when they are read
     @XmlElementWrapper(name = "errors")
     @XmlElement(name = "error")
     private List<String> errors;
@@ -0,0 +1,21 @@
+package org.muralis.batching.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A line of a customer file that could not be read as a record, with its line number and the
+ * reason it was rejected.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MalformedLine {
+
+    private long lineNumber;
+    private String reason;
+    private String line;
+}
@@ -0,0 +1,132 @@
+package org.muralis.batching.partition;
+
+import org.muralis.batching.io.Compression;
+import org.muralis.batching.reader.CustomerFileReader;
+import org.muralis.batching.reader.LineRecordSource;
+import org.muralis.batching.reader.MalformedRecordException;
+import org.springframework.batch.core.partition.support.Partitioner;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits a customer file into byte ranges of roughly equal size. Each boundary is moved forward
+ * to the first record whose person id differs from the record before it, so that no family is
+ * split across partitions. Records are parsed as the {@link CustomerFileReader} parses them, and
+ * the lines it rejects are passed over, since the reader keeps a family together across them.
+ * <p>
+ * Every partition's {@link ExecutionContext} holds its index under {@link #PARTITION_KEY} and
+ * its byte range under {@link #START_OFFSET_KEY} (inclusive) and {@link #END_OFFSET_KEY}
+ * (exclusive).
+ * <p>
+ * A compressed file cannot be entered at an arbitrary offset, so it is read as a single
+ * partition.
+ */
+public class FamilyAlignedPartitioner implements Partitioner {
+
+    public static final String PARTITION_KEY = "partition";
+    public static final String START_OFFSET_KEY = "startOffset";
+    public static final String END_OFFSET_KEY = "endOffset";
+
+    private static final int SCAN_BLOCK_SIZE = 4096;
+
+    private final Resource resource;
+
+    public FamilyAlignedPartitioner(Resource resource) {
+        this.resource = resource;
+    }
+
+    @Override
+    public Map<String, ExecutionContext> partition(int gridSize) {
+        List<Long> boundaries = new ArrayList<>();
+        if (Compression.of(resource.getFilename()).isCompressed()) {
+            boundaries.add(0L);
+            boundaries.add(Long.MAX_VALUE);
+            return partitions(boundaries);
+        }
+        try {
+            long size = resource.contentLength();
+            boundaries.add(0L);
+            for (int i = 1; i < gridSize; i++) {
+                long boundary = alignToFamily(size * i / gridSize, size);
+                if (boundary > boundaries.get(boundaries.size() - 1) && boundary < size) {
+                    boundaries.add(boundary);
+                }
+            }
+            boundaries.add(size);
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to partition customer file " + resource, e);
+        }
+        return partitions(boundaries);
+    }
+
+    private Map<String, ExecutionContext> partitions(List<Long> boundaries) {
+        Map<String, ExecutionContext> partitions = new LinkedHashMap<>();
+        for (int i = 0; i < boundaries.size() - 1; i++) {
+            ExecutionContext context = new ExecutionContext();
+            context.putInt(PARTITION_KEY, i);
+            context.putLong(START_OFFSET_KEY, boundaries.get(i));
+            context.putLong(END_OFFSET_KEY, boundaries.get(i + 1));
+            partitions.put("partition" + i, context);
+        }
+        return partitions;
+    }
+
+    /**
+     * @return the offset just past the last line before the first record at or after the line
+     * containing {@code target} that starts a new family, or {@code size} if there is none
+     */
+    private long alignToFamily(long target, long size) throws IOException {
+        long lineStart = lineStartBefore(target);
+        try (LineRecordSource source = new LineRecordSource(resource.getInputStream())) {
+            source.skip(lineStart);
+            String personId = null;
+            while (true) {
+                long offset = source.position();
+                String[] record;
+                try {
+                    record = source.next();
+                } catch (MalformedRecordException e) {
+                    continue;
+                }
+                if (record == null) {
+                    return size;
+                }
+                if (CustomerFileReader.structuralError(record) != null) {
+                    continue;
+                }
+                if (personId != null && !record[0].equals(personId)) {
+                    return offset;
+                }
+                personId = record[0];
+            }
+        }
+    }
+
+    private long lineStartBefore(long target) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(resource.getFile(), "r")) {
+            byte[] block = new byte[SCAN_BLOCK_SIZE];
+            long end = target;
+            while (end > 0) {
+                long start = Math.max(0, end - SCAN_BLOCK_SIZE);
+                int length = (int) (end - start);
+                file.seek(start);
+                file.readFully(block, 0, length);
+                for (int i = length - 1; i >= 0; i--) {
+                    if (block[i] == '\n') {
+                        return start + i + 1;
+                    }
+                }
+                end = start;
+            }
+            return 0;
+        }
+    }
+}
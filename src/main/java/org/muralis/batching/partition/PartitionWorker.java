@@ -0,0 +1,136 @@
+package org.muralis.batching.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the partitions that a {@link RepositoryPollingPartitionHandler} in another process left
+ * in the job repository. Every one of {@code concurrency} threads looks for a partition of a
+ * running execution of the job that is still {@code STARTING}, claims it by saving it as
+ * {@code STARTED}, and runs the worker step on it. The update is checked against the version
+ * of the step execution, so when several workers find the same partition only one of them
+ * claims it.
+ * <p>
+ * A thread that finds nothing to claim polls again after {@code pollInterval}, and stops once
+ * it has been idle for {@code idleTimeout}, if one is set.
+ */
+public class PartitionWorker {
+
+    public static final String PROFILE = "worker";
+
+    private static final Logger log = LoggerFactory.getLogger(PartitionWorker.class);
+
+    private final JobExplorer jobExplorer;
+    private final JobRepository jobRepository;
+    private final String jobName;
+    private final Step step;
+    private final int concurrency;
+    private final Duration pollInterval;
+    private final Duration idleTimeout;
+
+    /**
+     * @param step        the worker step, whose name prefixes the names of the partitions it runs
+     * @param idleTimeout the time after which an idle thread stops, or zero to poll forever
+     */
+    public PartitionWorker(JobExplorer jobExplorer, JobRepository jobRepository, String jobName, Step step,
+                           int concurrency, Duration pollInterval, Duration idleTimeout) {
+        this.jobExplorer = jobExplorer;
+        this.jobRepository = jobRepository;
+        this.jobName = jobName;
+        this.step = step;
+        this.concurrency = Math.max(1, concurrency);
+        this.pollInterval = pollInterval;
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * Runs partitions until every thread has been idle for the idle timeout.
+     *
+     * @return the number of partitions run
+     */
+    public int run() throws Exception {
+        log.info("Waiting for partitions of {} with {} threads", step.getName(), concurrency);
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, new CustomizableThreadFactory("worker-"));
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < concurrency; i++) {
+                results.add(executor.submit(this::poll));
+            }
+            int count = 0;
+            for (Future<Integer> result : results) {
+                count += result.get();
+            }
+            log.info("Ran {} partitions of {}", count, step.getName());
+            return count;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int poll() throws InterruptedException {
+        int count = 0;
+        long idleSince = System.nanoTime();
+        while (idleTimeout.isZero() || System.nanoTime() - idleSince < idleTimeout.toNanos()) {
+            StepExecution stepExecution = claim();
+            if (stepExecution == null) {
+                Thread.sleep(pollInterval.toMillis());
+                continue;
+            }
+            execute(stepExecution);
+            count++;
+            idleSince = System.nanoTime();
+        }
+        return count;
+    }
+
+    /**
+     * @return a partition claimed by this worker, or {@code null} if there is none to claim
+     */
+    private StepExecution claim() {
+        String prefix = step.getName() + ":";
+        for (JobExecution jobExecution : jobExplorer.findRunningJobExecutions(jobName)) {
+            for (StepExecution stepExecution : jobExecution.getStepExecutions()) {
+                if (stepExecution.getStatus() != BatchStatus.STARTING || !stepExecution.getStepName().startsWith(prefix)) {
+                    continue;
+                }
+                stepExecution.setStatus(BatchStatus.STARTED);
+                try {
+                    jobRepository.update(stepExecution);
+                    return stepExecution;
+                } catch (OptimisticLockingFailureException e) {
+                    log.debug("Partition {} was claimed by another worker", stepExecution.getStepName());
+                }
+            }
+        }
+        return null;
+    }
+
+    private void execute(StepExecution stepExecution) {
+        log.info("Running partition {} of job execution {}", stepExecution.getStepName(),
+                stepExecution.getJobExecutionId());
+        try {
+            step.execute(stepExecution);
+        } catch (Throwable e) {
+            log.error("Partition {} failed", stepExecution.getStepName(), e);
+            stepExecution.addFailureException(e);
+            stepExecution.setStatus(BatchStatus.FAILED);
+            jobRepository.update(stepExecution);
+        }
+        log.info("Partition {} finished with status {}", stepExecution.getStepName(), stepExecution.getStatus());
+    }
+}
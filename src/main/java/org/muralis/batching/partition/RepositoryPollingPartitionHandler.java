@@ -0,0 +1,102 @@
+package org.muralis.batching.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.ExitStatus;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.partition.support.AbstractPartitionHandler;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Hands the partitions of a manager step to worker processes through the job repository. The
+ * partition step executions are saved by the step splitter in the {@code STARTING} status, for
+ * a {@link PartitionWorker} sharing the repository to claim, and this handler polls the
+ * repository every {@code pollInterval} until none of them is running anymore.
+ * <p>
+ * Partitions still running after {@code timeout}, because no worker claimed them or the worker
+ * that did stopped, are marked as failed. The manager step then fails and the job can be
+ * restarted, which splits the failed partitions again. A worker still running such a partition
+ * fails at its next commit, since its step execution is out of date.
+ */
+public class RepositoryPollingPartitionHandler extends AbstractPartitionHandler {
+
+    private static final Logger log = LoggerFactory.getLogger(RepositoryPollingPartitionHandler.class);
+
+    private final JobExplorer jobExplorer;
+    private final JobRepository jobRepository;
+    private final Duration pollInterval;
+    private final Duration timeout;
+
+    /**
+     * @param timeout the time to wait for the partitions, or zero to wait until they finish
+     */
+    public RepositoryPollingPartitionHandler(JobExplorer jobExplorer, JobRepository jobRepository,
+                                             Duration pollInterval, Duration timeout) {
+        this.jobExplorer = jobExplorer;
+        this.jobRepository = jobRepository;
+        this.pollInterval = pollInterval;
+        this.timeout = timeout;
+    }
+
+    @Override
+    protected Set<StepExecution> doHandle(StepExecution managerStepExecution,
+                                          Set<StepExecution> partitionStepExecutions) throws Exception {
+        log.info("Waiting for workers to run {} partitions of {}", partitionStepExecutions.size(),
+                managerStepExecution.getStepName());
+        long deadline = System.nanoTime() + timeout.toNanos();
+        List<StepExecution> pending = new ArrayList<>(partitionStepExecutions);
+        Set<StepExecution> finished = new HashSet<>();
+        while (true) {
+            for (Iterator<StepExecution> it = pending.iterator(); it.hasNext(); ) {
+                StepExecution current = refresh(it.next());
+                if (!current.getStatus().isRunning()) {
+                    finished.add(current);
+                    it.remove();
+                }
+            }
+            if (pending.isEmpty()) {
+                return finished;
+            }
+            if (!timeout.isZero() && System.nanoTime() - deadline >= 0) {
+                for (StepExecution stepExecution : pending) {
+                    finished.add(fail(refresh(stepExecution)));
+                }
+                return finished;
+            }
+            Thread.sleep(pollInterval.toMillis());
+        }
+    }
+
+    private StepExecution refresh(StepExecution stepExecution) {
+        return jobExplorer.getStepExecution(stepExecution.getJobExecutionId(), stepExecution.getId());
+    }
+
+    /**
+     * Marks a partition still running at the timeout as failed, unless its worker updated it in
+     * the meantime.
+     */
+    private StepExecution fail(StepExecution stepExecution) {
+        log.warn("Partition {} is still {} after {}; marking it as failed", stepExecution.getStepName(),
+                stepExecution.getStatus(), timeout);
+        stepExecution.setStatus(BatchStatus.FAILED);
+        stepExecution.setExitStatus(ExitStatus.FAILED.addExitDescription("Not finished by a worker within " + timeout));
+        stepExecution.setEndTime(LocalDateTime.now());
+        try {
+            jobRepository.update(stepExecution);
+        } catch (OptimisticLockingFailureException e) {
+            log.warn("Partition {} was updated by its worker while marking it as failed", stepExecution.getStepName());
+        }
+        return stepExecution;
+    }
+}
@@ -0,0 +1,59 @@
+package org.muralis.batching.partition;
+
+import org.muralis.batching.reader.TrailerCheck;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.partition.support.DefaultStepExecutionAggregator;
+import org.springframework.batch.core.partition.support.StepExecutionAggregator;
+
+import java.util.Collection;
+
+/**
+ * Aggregates the worker step executions of a partitioned read and then checks the trailer of
+ * the whole file: the counts of records and of rejected record lines saved by every partition's
+ * reader are summed and compared with the trailer saved by the partition that reached the end
+ * of the file. The check is
+ * skipped when a partition failed, since the step fails anyway.
+ * <p>
+ * The outcome is saved in both the manager step and the job execution context, where a single
+ * reader would have its header and trailer keys promoted.
+ */
+public class TrailerVerifyingAggregator implements StepExecutionAggregator {
+
+    private final StepExecutionAggregator delegate = new DefaultStepExecutionAggregator();
+    private final TrailerCheck trailerCheck;
+    private final String recordCountKey;
+    private final String malformedCountKey;
+    private final String trailerKey;
+    private final String trailerVerifiedKey;
+
+    public TrailerVerifyingAggregator(TrailerCheck trailerCheck, String recordCountKey, String malformedCountKey,
+                                      String trailerKey, String trailerVerifiedKey) {
+        this.trailerCheck = trailerCheck;
+        this.recordCountKey = recordCountKey;
+        this.malformedCountKey = malformedCountKey;
+        this.trailerKey = trailerKey;
+        this.trailerVerifiedKey = trailerVerifiedKey;
+    }
+
+    @Override
+    public void aggregate(StepExecution result, Collection<StepExecution> executions) {
+        delegate.aggregate(result, executions);
+        if (result.getStatus().isUnsuccessful()) {
+            return;
+        }
+
+        long recordCount = 0;
+        String trailer = null;
+        for (StepExecution execution : executions) {
+            recordCount += execution.getExecutionContext().getLong(recordCountKey, 0L)
+                    + execution.getExecutionContext().getLong(malformedCountKey, 0L);
+            if (execution.getExecutionContext().containsKey(trailerKey)) {
+                trailer = execution.getExecutionContext().getString(trailerKey);
+            }
+        }
+
+        boolean verified = trailerCheck.verify(trailer, recordCount);
+        result.getExecutionContext().put(trailerVerifiedKey, verified);
+        result.getJobExecution().getExecutionContext().put(trailerVerifiedKey, verified);
+    }
+}
@@ -1,7 +1,12 @@
 package org.muralis.batching.processor;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
 import org.muralis.batching.model.Beneficiary;
 import org.muralis.batching.model.InvalidBeneficiary;
+import org.muralis.batching.validator.ErrorAccumulator;
 import org.muralis.batching.validator.Validatable;
 import org.muralis.batching.validator.Validator;
 import org.springframework.batch.item.ItemProcessor;
@@ -12,21 +17,41 @@ import org.springframework.stereotype.Component;
 public class BeneficiaryValidationProcessor implements ItemProcessor<Beneficiary, Object> {
 
     private final Validator<Validatable> validator;
+    private final ThreadLocal<ErrorAccumulator> accumulator = ThreadLocal.withInitial(ErrorAccumulator::new);
+    private final Counter validCounter;
+    private final Counter invalidCounter;
 
-    @Autowired
     public BeneficiaryValidationProcessor(Validator<Validatable> validator) {
+        this(validator, new CompositeMeterRegistry());
+    }
+
+    @Autowired
+    public BeneficiaryValidationProcessor(Validator<Validatable> validator, MeterRegistry meterRegistry) {
         this.validator = validator;
+        this.validCounter = Counter.builder("processor.items").tag("outcome", "valid").register(meterRegistry);
+        this.invalidCounter = Counter.builder("processor.items").tag("outcome", "invalid").register(meterRegistry);
+        Gauge.builder("processor.valid.ratio", this, BeneficiaryValidationProcessor::validRatio)
+                .register(meterRegistry);
     }
 
     @Override
     public Object process(Beneficiary beneficiary) {
-        return validator.validate(beneficiary)
-                .fold(
-                        errors -> InvalidBeneficiary.builder()
-                                .beneficiary(beneficiary)
-                                .errors(errors.toJavaList())
-                                .build(),
-                        validBeneficiary -> validBeneficiary
-                );
+        ErrorAccumulator errors = accumulator.get();
+        errors.clear();
+        validator.validate(beneficiary, errors);
+        if (errors.isEmpty()) {
+            validCounter.increment();
+            return beneficiary;
+        }
+        invalidCounter.increment();
+        return InvalidBeneficiary.builder()
+                .beneficiary(beneficiary)
+                .errors(errors.toErrors())
+                .build();
+    }
+
+    private double validRatio() {
+        double total = validCounter.count() + invalidCounter.count();
+        return total == 0 ? Double.NaN : validCounter.count() / total;
     }
 }
@@ -0,0 +1,77 @@
+package org.muralis.batching.reader;
+
+import org.muralis.batching.io.Compression;
+import org.muralis.batching.model.Beneficiary;
+import org.muralis.batching.model.InvalidBeneficiary;
+import org.muralis.batching.writer.BeneficiaryBinaryRecords;
+import org.springframework.batch.item.ItemReader;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads back the families written in the binary output format, as {@link Beneficiary} or
+ * {@link InvalidBeneficiary} items, for downstream loaders and tools.
+ *
+ * @see BeneficiaryBinaryRecords
+ */
+public class BinaryBeneficiaryReader implements ItemReader<Object>, Closeable {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final DataInputStream in;
+    private byte[] payload = new byte[1024];
+
+    public BinaryBeneficiaryReader(InputStream inputStream) throws IOException {
+        this.in = new DataInputStream(new BufferedInputStream(inputStream, BUFFER_SIZE));
+        byte[] magic = new byte[BeneficiaryBinaryRecords.MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, BeneficiaryBinaryRecords.MAGIC)) {
+            throw new IOException("Not a binary beneficiary file");
+        }
+    }
+
+    /**
+     * Opens a binary file, decompressing it if its name ends in {@code .gz} or {@code .deflate}.
+     */
+    public static BinaryBeneficiaryReader open(Path path) throws IOException {
+        InputStream inputStream = Files.newInputStream(path);
+        try {
+            return new BinaryBeneficiaryReader(Compression.of(path.getFileName().toString()).decompress(inputStream));
+        } catch (IOException e) {
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the next family, or {@code null} at the end of the file
+     */
+    @Override
+    public Object read() throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        if (payload.length < length) {
+            payload = new byte[Math.max(length, payload.length * 2)];
+        }
+        in.readFully(payload, 0, length);
+        return BeneficiaryBinaryRecords.read(new DataInputStream(new ByteArrayInputStream(payload, 0, length)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -1,112 +1,563 @@
 package org.muralis.batching.reader;
 
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.muralis.batching.incremental.FamilyHashIndex;
+import org.muralis.batching.io.Compression;
+import org.muralis.batching.io.ReadAheadInputStream;
 import org.muralis.batching.model.Address;
 import org.muralis.batching.model.Beneficiary;
-import org.springframework.batch.item.ItemReader;
-import org.springframework.beans.factory.InitializingBean;
+import org.muralis.batching.model.MalformedLine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamReader;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.file.FlatFileParseException;
 import org.springframework.core.io.Resource;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
 
-public class CustomerFileReader implements ItemReader<Beneficiary>, InitializingBean {
+/**
+ * Streams families out of a customer file. Records are read one line at a time and grouped
+ * with a single record of lookahead: the first record whose person id differs from the current
+ * primary ends the family and becomes the primary of the next one.
+ * <p>
+ * Dependents with the same address as their primary share its {@link Address} instance, and
+ * the last name, city, state and zip are taken from a bounded table of recently seen values,
+ * so repeated values are held once.
+ * <p>
+ * The byte offset of the next family and the number of families read so far are saved in the
+ * {@link ExecutionContext}, so a restarted step resumes where the last committed chunk ended.
+ * <p>
+ * When memory mapping is enabled and the resource is a file, records are scanned straight from
+ * the mapped bytes by {@link MappedRecordSource}; otherwise they are read through a
+ * {@link LineRecordSource}.
+ * <p>
+ * A {@code .gz} or {@code .deflate} resource is decompressed while it is read, on a separate
+ * thread through a {@link ReadAheadInputStream}, so inflating overlaps with parsing. Offsets
+ * then refer to the decompressed data and memory mapping does not apply.
+ * <p>
+ * A reader may be limited to a byte range of the file. Both ends of the range must fall on a
+ * family boundary, as computed by the partitioner.
+ * <p>
+ * A file that is not sorted by person id can be read through a {@link SortingRecordSource},
+ * which merge sorts the records by id with a bounded buffer so that the records of every
+ * family are adjacent. Offsets then count the bytes of the records consumed in sorted order,
+ * and the reader cannot be limited to a byte range.
+ * <p>
+ * The {@code ~HDR|date|client|type} header is saved in the execution context as it is passed,
+ * together with the number of records read and, once it is reached, the {@code ~FTR} trailer.
+ * At the end of the input the trailer count is checked against the record lines read, whether
+ * they were built or rejected, as configured by the {@link TrailerCheck}. Partition readers
+ * leave the check to the partition manager, since no single partition sees every record.
+ * <p>
+ * Record lines that are too short, have a person id that is not a number or cannot be split
+ * into fields are not returned. They are written, with their line number and the reason, to a
+ * quarantine writer that is opened, updated and closed with the reader, so its output follows
+ * the committed chunks. Once more than the allowed number of lines has been rejected, the
+ * reader fails with a {@link FlatFileParseException}. Line numbers count from the start of the
+ * file; a partition reader counts the lines before its range only when it rejects a line.
+ * <p>
+ * With a {@link FamilyHashIndex}, a content hash of the record fields of every family is looked
+ * up in the index of the last successful run, and unchanged families are skipped without being
+ * built.
+ * <p>
+ * When a {@link MeterRegistry} is set, the reader reports the bytes consumed, the lines
+ * skipped and rejected, the records and families read, and the time spent reading and parsing
+ * the records of each family. The counters are brought up to date on every {@link #update} and
+ * on close.
+ */
+public class CustomerFileReader extends ItemStreamSupport implements ItemStreamReader<Beneficiary> {
 
-    private Resource resource;
-    private Iterator<Beneficiary> beneficiaryIterator;
+    public static final String HEADER_DATE_KEY = "header.date";
+    public static final String HEADER_CLIENT_KEY = "header.client";
+    public static final String HEADER_TYPE_KEY = "header.type";
+    public static final String RECORD_COUNT_KEY = "record.count";
+    public static final String MALFORMED_COUNT_KEY = "malformed.count";
+    public static final String TRAILER_KEY = "trailer";
+    public static final String TRAILER_VERIFIED_KEY = "trailer.verified";
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerFileReader.class);
+
+    private static final String NAME = "customerFileReader";
+    private static final String OFFSET_KEY = "offset";
+    private static final String FAMILY_COUNT_KEY = "family.count";
+    private static final String LINE_KEY = "line";
+    private static final int RECORD_FIELDS = 7;
+    private static final int COUNT_BUFFER_SIZE = 64 * 1024;
+    private static final String[] HEADER_KEYS = {HEADER_DATE_KEY, HEADER_CLIENT_KEY, HEADER_TYPE_KEY};
+    private static final int READ_AHEAD_BUFFER_SIZE = 256 * 1024;
+    private static final int READ_AHEAD_BUFFERS = 4;
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final char FIELD_SEPARATOR = 0x1f;
+    private static final char RECORD_SEPARATOR = 0x1e;
+    private static final int FIELD_TABLE_SIZE = 4096;
+
+    private final Resource resource;
+    private final boolean memoryMapped;
+    private final long startOffset;
+    private final long endOffset;
+
+    private RecordSource source;
+    private String[] nextRecord;
+    private long nextRecordOffset;
+    private long nextRecordLine;
+    private long sourceStart;
+    private long linesBeforeSource;
+    private long familyCount;
+    private long recordCount;
+    private String[] header;
+    private String trailer;
+    private Boolean trailerVerified;
+    private TrailerCheck trailerCheck = TrailerCheck.OFF;
+    private final List<String[]> familyRecords = new ArrayList<>();
+    private final StringTable fieldTable = new StringTable(FIELD_TABLE_SIZE);
+    private FamilyHashIndex familyHashIndex;
+    private FamilyHashIndex.Recorder hashRecorder;
+    private long unchangedFamilyCount;
+    private ItemStreamWriter<MalformedLine> quarantine;
+    private long maxMalformedLines;
+    private long malformedLineCount;
+    private long sortBufferSize;
+    private Path sortDirectory;
+
+    private MeterRegistry meterRegistry = new CompositeMeterRegistry();
+    private Counter bytesCounter;
+    private Counter skippedLinesCounter;
+    private Counter recordsCounter;
+    private Counter familiesCounter;
+    private Counter unchangedFamiliesCounter;
+    private Counter malformedLinesCounter;
+    private Timer parseTimer;
+    private long reportedOffset;
+    private long reportedSkippedLines;
+    private long reportedRecordCount;
+    private long reportedFamilyCount;
+    private long reportedUnchangedFamilyCount;
+    private long reportedMalformedLineCount;
+
+    /**
+     * @return the key under which a reader saves {@code key} in the step execution context,
+     * for use before any reader exists, as when the reader is step scoped
+     */
+    public static String executionContextKey(String key) {
+        return NAME + "." + key;
+    }
 
     public CustomerFileReader(Resource resource) {
+        this(resource, false);
+    }
+
+    public CustomerFileReader(Resource resource, boolean memoryMapped) {
+        this(resource, memoryMapped, 0L, Long.MAX_VALUE);
+    }
+
+    public CustomerFileReader(Resource resource, boolean memoryMapped, long startOffset, long endOffset) {
         this.resource = resource;
+        this.memoryMapped = memoryMapped;
+        this.startOffset = startOffset;
+        this.endOffset = endOffset;
+        setName(NAME);
+    }
+
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void setTrailerCheck(TrailerCheck trailerCheck) {
+        this.trailerCheck = trailerCheck;
+    }
+
+    /**
+     * Enables incremental reading: families whose content hash is unchanged in the index are
+     * skipped, and the hash of every family read is recorded for the next run.
+     */
+    public void setFamilyHashIndex(FamilyHashIndex familyHashIndex) {
+        this.familyHashIndex = familyHashIndex;
+    }
+
+    /**
+     * Sets where rejected lines are written and how many may be rejected before the reader
+     * fails. Without a quarantine writer rejected lines are only logged, and by default the
+     * first one fails the reader.
+     */
+    public void setQuarantine(ItemStreamWriter<MalformedLine> quarantine, long maxMalformedLines) {
+        this.quarantine = quarantine;
+        this.maxMalformedLines = maxMalformedLines;
+    }
+
+    /**
+     * Groups the records of a file that is not sorted by person id, by sorting them with at most
+     * {@code bufferSize} bytes of records in memory and the rest spilled to sorted runs in
+     * {@code tempDirectory}, or the default temporary directory if it is {@code null}.
+     */
+    public void setSortBuffer(long bufferSize, Path tempDirectory) {
+        if (startOffset != 0 || endOffset != Long.MAX_VALUE) {
+            throw new IllegalStateException("A reader limited to a byte range cannot sort the records");
+        }
+        this.sortBufferSize = bufferSize;
+        this.sortDirectory = tempDirectory;
     }
 
     @Override
-    public Beneficiary read() {
-        if (beneficiaryIterator != null && beneficiaryIterator.hasNext()) {
-            return beneficiaryIterator.next();
+    public Beneficiary read() throws Exception {
+        while (nextRecord != null) {
+            String[] primaryRecord = nextRecord;
+            familyRecords.clear();
+            familyRecords.add(primaryRecord);
+
+            long parseNanos = advance();
+            while (nextRecord != null && getPersonIdFromRecord(nextRecord).equals(getPersonIdFromRecord(primaryRecord))) {
+                familyRecords.add(nextRecord);
+                parseNanos += advance();
+            }
+
+            familyCount++;
+            recordCount += familyRecords.size();
+            parseTimer.record(parseNanos, TimeUnit.NANOSECONDS);
+            if (hashRecorder != null && unchanged(primaryRecord)) {
+                unchangedFamilyCount++;
+                continue;
+            }
+            return buildFamily();
+        }
+
+        if (trailerVerified == null) {
+            trailer = source.trailer();
+            // The trailer counts every record line, including the ones quarantined
+            trailerVerified = trailerCheck.verify(trailer, recordCount + malformedLineCount);
         }
         return null;
     }
 
     @Override
-    public void afterPropertiesSet() throws Exception {
-        List<CSVRecord> records = parseFile();
-        List<Beneficiary> beneficiaries = transformToBeneficiaries(records);
-        this.beneficiaryIterator = beneficiaries.iterator();
-    }
-
-    private List<CSVRecord> parseFile() throws Exception {
-        List<CSVRecord> records = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(resource.getInputStream()))) {
-            List<String> lines = reader.lines()
-                    .filter(line -> line.startsWith("~PII~"))
-                    .collect(Collectors.toList());
-
-            for (String line : lines) {
-                String data = line.substring("~PII~".length());
-                try (CSVParser parser = CSVParser.parse(data, CSVFormat.DEFAULT.withDelimiter('|').withTrim())) {
-                    records.addAll(parser.getRecords());
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        bytesCounter = Counter.builder("customer.reader.bytes").baseUnit("bytes").register(meterRegistry);
+        skippedLinesCounter = Counter.builder("customer.reader.lines.skipped").register(meterRegistry);
+        recordsCounter = Counter.builder("customer.reader.records").register(meterRegistry);
+        familiesCounter = Counter.builder("customer.reader.families").register(meterRegistry);
+        unchangedFamiliesCounter = Counter.builder("customer.reader.families.unchanged").register(meterRegistry);
+        malformedLinesCounter = Counter.builder("customer.reader.lines.malformed").register(meterRegistry);
+        parseTimer = Timer.builder("customer.reader.parse")
+                .description("Time spent reading and parsing the records of a family")
+                .register(meterRegistry);
+        try {
+            source = openSource();
+            header = null;
+            trailer = null;
+            trailerVerified = null;
+            if (executionContext.containsKey(getExecutionContextKey(OFFSET_KEY))) {
+                sourceStart = executionContext.getLong(getExecutionContextKey(OFFSET_KEY));
+                source.skip(sourceStart);
+                familyCount = executionContext.getLong(getExecutionContextKey(FAMILY_COUNT_KEY), 0L);
+                recordCount = executionContext.getLong(getExecutionContextKey(RECORD_COUNT_KEY), 0L);
+                linesBeforeSource = executionContext.getLong(getExecutionContextKey(LINE_KEY), sourceStart == 0 ? 0L : -1L);
+                malformedLineCount = executionContext.getLong(getExecutionContextKey(MALFORMED_COUNT_KEY), 0L);
+                if (executionContext.containsKey(getExecutionContextKey(HEADER_DATE_KEY))) {
+                    header = new String[HEADER_KEYS.length];
+                    for (int i = 0; i < HEADER_KEYS.length; i++) {
+                        header[i] = executionContext.getString(getExecutionContextKey(HEADER_KEYS[i]));
+                    }
+                }
+            } else {
+                sourceStart = startOffset;
+                source.skip(startOffset);
+                familyCount = 0;
+                recordCount = 0;
+                linesBeforeSource = startOffset == 0 ? 0 : -1;
+                malformedLineCount = 0;
+            }
+            if (quarantine != null) {
+                quarantine.open(executionContext);
+            }
+            reportedOffset = source.position();
+            reportedSkippedLines = 0;
+            reportedRecordCount = recordCount;
+            reportedFamilyCount = familyCount;
+            unchangedFamilyCount = 0;
+            reportedUnchangedFamilyCount = 0;
+            reportedMalformedLineCount = malformedLineCount;
+            hashRecorder = familyHashIndex == null ? null : familyHashIndex.recorder();
+            fieldTable.clear();
+            advance();
+            if (header == null && source.header() != null) {
+                header = parseHeader(source.header());
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to open customer file " + resource, e);
+        }
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        executionContext.putLong(getExecutionContextKey(OFFSET_KEY), nextRecordOffset);
+        executionContext.putLong(getExecutionContextKey(FAMILY_COUNT_KEY), familyCount);
+        executionContext.putLong(getExecutionContextKey(RECORD_COUNT_KEY), recordCount);
+        executionContext.putLong(getExecutionContextKey(MALFORMED_COUNT_KEY), malformedLineCount);
+        if (linesBeforeSource >= 0) {
+            executionContext.putLong(getExecutionContextKey(LINE_KEY), linesBeforeSource + nextRecordLine);
+        }
+        if (quarantine != null) {
+            quarantine.update(executionContext);
+        }
+        if (header != null) {
+            for (int i = 0; i < HEADER_KEYS.length; i++) {
+                executionContext.putString(getExecutionContextKey(HEADER_KEYS[i]), header[i]);
+            }
+        }
+        if (trailer != null) {
+            executionContext.putString(getExecutionContextKey(TRAILER_KEY), trailer);
+        }
+        if (trailerVerified != null) {
+            executionContext.put(getExecutionContextKey(TRAILER_VERIFIED_KEY), trailerVerified);
+        }
+        reportMetrics();
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (source != null) {
+            reportMetrics();
+            try {
+                source.close();
+            } catch (IOException e) {
+                throw new ItemStreamException("Failed to close customer file " + resource, e);
+            } finally {
+                source = null;
+                nextRecord = null;
+                if (quarantine != null) {
+                    quarantine.close();
                 }
             }
         }
-        return records;
     }
 
-    private List<Beneficiary> transformToBeneficiaries(List<CSVRecord> records) {
-        List<Beneficiary> beneficiaries = new ArrayList<>();
-        if (records.isEmpty()) {
-            return beneficiaries;
+    private RecordSource openSource() throws IOException {
+        RecordSource source = openFileSource();
+        return sortBufferSize > 0 ? new SortingRecordSource(source, sortBufferSize, sortDirectory) : source;
+    }
+
+    private RecordSource openFileSource() throws IOException {
+        Compression compression = Compression.of(resource.getFilename());
+        if (compression.isCompressed()) {
+            return new LineRecordSource(new ReadAheadInputStream(compression.decompress(resource.getInputStream()),
+                    READ_AHEAD_BUFFER_SIZE, READ_AHEAD_BUFFERS), endOffset);
+        }
+        if (memoryMapped && resource.isFile()) {
+            return new MappedRecordSource(resource.getFile().toPath(), endOffset);
+        }
+        return new LineRecordSource(resource.getInputStream(), endOffset);
+    }
+
+    /**
+     * Moves the lookahead to the next well-formed record, remembering the offset to resume from
+     * so that the lookahead is read again after a restart. Malformed records on the way are
+     * quarantined.
+     *
+     * @return the time taken to read and parse the record, in nanoseconds
+     */
+    private long advance() throws IOException {
+        long start = System.nanoTime();
+        while (true) {
+            nextRecordOffset = source.position();
+            nextRecordLine = source.lines();
+            String reason;
+            try {
+                nextRecord = source.next();
+                reason = nextRecord == null ? null : structuralError(nextRecord);
+            } catch (MalformedRecordException e) {
+                reason = e.getMessage();
+            }
+            if (reason == null) {
+                return System.nanoTime() - start;
+            }
+            reject(reason);
         }
+    }
 
-        List<CSVRecord> familyRecords = new ArrayList<>();
-        String currentPersonId = getPersonIdFromRecord(records.get(0));
+    /**
+     * @return why a record cannot be built, or {@code null} if it can
+     */
+    public static String structuralError(String[] record) {
+        if (record.length < RECORD_FIELDS) {
+            return "Expected " + RECORD_FIELDS + " fields but found " + record.length;
+        }
+        try {
+            Long.parseLong(record[0]);
+            return null;
+        } catch (NumberFormatException e) {
+            return "Person id '" + record[0] + "' is not a number";
+        }
+    }
 
-        for (CSVRecord record : records) {
-            if (!getPersonIdFromRecord(record).equals(currentPersonId)) {
-                beneficiaries.add(createFamily(familyRecords));
-                familyRecords.clear();
-                currentPersonId = getPersonIdFromRecord(record);
+    private void reject(String reason) throws IOException {
+        malformedLineCount++;
+        MalformedLine malformedLine = MalformedLine.builder()
+                .lineNumber(lineNumber(source.lines()))
+                .reason(reason)
+                .line(source.line())
+                .build();
+        if (quarantine != null) {
+            try {
+                quarantine.write(Chunk.of(malformedLine));
+            } catch (Exception e) {
+                throw new ItemStreamException("Failed to quarantine line " + malformedLine.getLineNumber() + " of "
+                        + resource, e);
             }
-            familyRecords.add(record);
+        } else {
+            log.warn("Rejected line {} of {}: {}", malformedLine.getLineNumber(), resource, reason);
+        }
+        if (malformedLineCount > maxMalformedLines) {
+            throw new FlatFileParseException("Rejected " + malformedLineCount + " malformed lines of " + resource
+                    + ", more than the " + maxMalformedLines + " allowed; the last one at line "
+                    + malformedLine.getLineNumber() + ": " + reason,
+                    malformedLine.getLine(), (int) Math.min(malformedLine.getLineNumber(), Integer.MAX_VALUE));
+        }
+    }
+
+    /**
+     * @return the line number in the file of the given line of the source, counting the lines
+     * before the offset the source started at if they are not known yet
+     */
+    private long lineNumber(long sourceLine) throws IOException {
+        if (linesBeforeSource < 0) {
+            linesBeforeSource = countLines(sourceStart);
         }
-        beneficiaries.add(createFamily(familyRecords));
+        return linesBeforeSource + sourceLine;
+    }
 
-        return beneficiaries;
+    private long countLines(long length) throws IOException {
+        Compression compression = Compression.of(resource.getFilename());
+        try (InputStream in = compression.decompress(resource.getInputStream())) {
+            byte[] buffer = new byte[COUNT_BUFFER_SIZE];
+            long lines = 0;
+            long remaining = length;
+            int read;
+            while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) > 0) {
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') {
+                        lines++;
+                    }
+                }
+                remaining -= read;
+            }
+            return lines;
+        }
     }
 
-    private Beneficiary createFamily(List<CSVRecord> familyRecords) {
-        CSVRecord primaryRecord = familyRecords.get(0);
-        Beneficiary primary = buildBeneficiary(primaryRecord);
+    /**
+     * Adds what was read since the last report to the counters. Bytes are counted up to the
+     * start of the lookahead record, like the saved offset, or to the end once it is exhausted.
+     */
+    private void reportMetrics() {
+        if (source == null) {
+            return;
+        }
+        long offset = nextRecord == null ? source.position() : nextRecordOffset;
+        bytesCounter.increment(offset - reportedOffset);
+        reportedOffset = offset;
+        long skippedLines = source.skippedLines();
+        skippedLinesCounter.increment(skippedLines - reportedSkippedLines);
+        reportedSkippedLines = skippedLines;
+        recordsCounter.increment(recordCount - reportedRecordCount);
+        reportedRecordCount = recordCount;
+        familiesCounter.increment(familyCount - reportedFamilyCount);
+        reportedFamilyCount = familyCount;
+        unchangedFamiliesCounter.increment(unchangedFamilyCount - reportedUnchangedFamilyCount);
+        reportedUnchangedFamilyCount = unchangedFamilyCount;
+        malformedLinesCounter.increment(malformedLineCount - reportedMalformedLineCount);
+        reportedMalformedLineCount = malformedLineCount;
+    }
 
-        List<Beneficiary> dependents = familyRecords.stream()
-                .skip(1)
-                .map(this::buildBeneficiary)
-                .collect(Collectors.toList());
+    /**
+     * @return the date, client and type of a {@code ~HDR} line, blank where missing
+     */
+    private static String[] parseHeader(String line) {
+        String[] fields = line.split("\\|", -1);
+        String[] header = new String[HEADER_KEYS.length];
+        for (int i = 0; i < header.length; i++) {
+            header[i] = i + 1 < fields.length ? fields[i + 1].trim() : "";
+        }
+        return header;
+    }
 
+    private Beneficiary buildFamily() {
+        Beneficiary primary = buildBeneficiary(familyRecords.get(0), null);
+        List<Beneficiary> dependents = new ArrayList<>(familyRecords.size() - 1);
+        for (int i = 1; i < familyRecords.size(); i++) {
+            dependents.add(buildBeneficiary(familyRecords.get(i), primary.getAddress()));
+        }
         primary.setDependents(dependents);
         return primary;
     }
 
-    private Beneficiary buildBeneficiary(CSVRecord record) {
+    /**
+     * Records the content hash of the current family and looks it up in the index. Only the
+     * first {@value #RECORD_FIELDS} fields of each record, those a beneficiary is built from,
+     * are hashed: sources differ in whether they keep any further fields, and the hash must not
+     * depend on the source.
+     *
+     * @return whether the family is unchanged since the last successful run
+     */
+    private boolean unchanged(String[] primaryRecord) {
+        long hash = FNV_OFFSET_BASIS;
+        for (String[] record : familyRecords) {
+            for (int f = 0; f < RECORD_FIELDS; f++) {
+                String field = record[f];
+                for (int i = 0; i < field.length(); i++) {
+                    hash = (hash ^ field.charAt(i)) * FNV_PRIME;
+                }
+                hash = (hash ^ FIELD_SEPARATOR) * FNV_PRIME;
+            }
+            hash = (hash ^ RECORD_SEPARATOR) * FNV_PRIME;
+        }
+        long familyId = Long.parseLong(getPersonIdFromRecord(primaryRecord));
+        hashRecorder.record(familyId, hash);
+        return familyHashIndex.unchanged(familyId, hash);
+    }
+
+    /**
+     * @param sharedAddress an address to reuse if the record has the same one, or null
+     */
+    private Beneficiary buildBeneficiary(String[] record, Address sharedAddress) {
         return Beneficiary.builder()
-                .personId(Long.parseLong(record.get(0)))
-                .firstName(record.get(1))
-                .lastName(record.get(2))
-                .address(Address.builder()
-                        .street(record.get(3))
-                        .city(record.get(4))
-                        .state(record.get(5))
-                        .zip(record.get(6))
-                        .build())
+                .personId(Long.parseLong(record[0]))
+                .firstName(record[1])
+                .lastName(fieldTable.canonical(record[2]))
+                .address(buildAddress(record, sharedAddress))
+                .build();
+    }
+
+    private Address buildAddress(String[] record, Address sharedAddress) {
+        if (sharedAddress != null
+                && Objects.equals(sharedAddress.getStreet(), record[3])
+                && Objects.equals(sharedAddress.getCity(), record[4])
+                && Objects.equals(sharedAddress.getState(), record[5])
+                && Objects.equals(sharedAddress.getZip(), record[6])) {
+            return sharedAddress;
+        }
+        return Address.builder()
+                .street(record[3])
+                .city(fieldTable.canonical(record[4]))
+                .state(fieldTable.canonical(record[5]))
+                .zip(fieldTable.canonical(record[6]))
                 .build();
     }
 
-    private String getPersonIdFromRecord(CSVRecord record) {
-        return record.get(0);
+    private String getPersonIdFromRecord(String[] record) {
+        return record[0];
     }
 }
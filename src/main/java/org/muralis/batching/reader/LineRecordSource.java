@@ -0,0 +1,89 @@
+package org.muralis.batching.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads records line by line from any input stream and parses them with commons-csv, stopping
+ * at an optional end offset.
+ */
+public class LineRecordSource implements RecordSource {
+
+    private final PositionedLineReader lineReader;
+    private final long endOffset;
+    private long lines;
+    private long skippedLines;
+    private String line;
+    private String header;
+    private String trailer;
+
+    public LineRecordSource(InputStream inputStream) {
+        this(inputStream, Long.MAX_VALUE);
+    }
+
+    public LineRecordSource(InputStream inputStream, long endOffset) {
+        this.lineReader = new PositionedLineReader(inputStream);
+        this.endOffset = endOffset;
+    }
+
+    @Override
+    public long position() {
+        return lineReader.position();
+    }
+
+    @Override
+    public void skip(long bytes) throws IOException {
+        lineReader.skip(bytes);
+    }
+
+    @Override
+    public String[] next() throws IOException {
+        String line;
+        while (lineReader.position() < endOffset && (line = lineReader.readLine()) != null) {
+            lines++;
+            if (line.startsWith(RECORD_PREFIX)) {
+                this.line = line;
+                String[] record = RecordSource.parseCsv(line.substring(RECORD_PREFIX.length()));
+                if (record != null) {
+                    return record;
+                }
+            } else if (line.startsWith(HEADER_PREFIX)) {
+                header = line;
+            } else if (line.startsWith(TRAILER_PREFIX)) {
+                trailer = line;
+            }
+            skippedLines++;
+        }
+        return null;
+    }
+
+    @Override
+    public long lines() {
+        return lines;
+    }
+
+    @Override
+    public String line() {
+        return line;
+    }
+
+    @Override
+    public long skippedLines() {
+        return skippedLines;
+    }
+
+    @Override
+    public String header() {
+        return header;
+    }
+
+    @Override
+    public String trailer() {
+        return trailer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        lineReader.close();
+    }
+}
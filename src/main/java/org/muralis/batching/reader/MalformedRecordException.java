@@ -0,0 +1,14 @@
+package org.muralis.batching.reader;
+
+import java.io.IOException;
+
+/**
+ * Thrown by a {@link RecordSource} for a record line that cannot be split into fields. The line
+ * has been consumed, so the source can carry on with the next one.
+ */
+public class MalformedRecordException extends IOException {
+
+    public MalformedRecordException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
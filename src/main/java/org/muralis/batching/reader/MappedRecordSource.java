@@ -0,0 +1,218 @@
+package org.muralis.batching.reader;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Scans a memory-mapped customer file byte by byte. Record lines are recognised by their
+ * {@code ~PII~} prefix and split on {@code '|'} directly from the mapped bytes, producing the
+ * first seven trimmed fields with no regex, parser object or intermediate record. Only lines
+ * containing a quote fall back to commons-csv.
+ * <p>
+ * The file is mapped in windows so inputs larger than 2 GB can be scanned; a window is
+ * re-mapped at the start of any line that runs past its end. Scanning stops at an optional end
+ * offset, which must fall on a line boundary.
+ */
+public class MappedRecordSource implements RecordSource {
+
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int RECORD_FIELDS = 7;
+    private static final byte[] PREFIX = RECORD_PREFIX.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEADER = HEADER_PREFIX.getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TRAILER = TRAILER_PREFIX.getBytes(StandardCharsets.US_ASCII);
+
+    private final FileChannel channel;
+    private final long size;
+    private final long endOffset;
+    private final int windowSize;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+    private long lines;
+    private long skippedLines;
+    private int recordLength = -1;
+    private String header;
+    private String trailer;
+    private byte[] line = new byte[256];
+
+    public MappedRecordSource(Path path) throws IOException {
+        this(path, Long.MAX_VALUE);
+    }
+
+    public MappedRecordSource(Path path, long endOffset) throws IOException {
+        this(path, endOffset, WINDOW_SIZE);
+    }
+
+    MappedRecordSource(Path path, long endOffset, int windowSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.size = channel.size();
+        this.endOffset = Math.min(endOffset, size);
+        this.windowSize = windowSize;
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public void skip(long bytes) {
+        position = Math.min(position + bytes, size);
+    }
+
+    @Override
+    public String[] next() throws IOException {
+        recordLength = -1;
+        while (position < endOffset) {
+            int length = readLine();
+            lines++;
+            if (startsWith(PREFIX, length) && length > PREFIX.length) {
+                recordLength = length;
+                String[] record = hasQuote(length) ? parseQuoted(length) : split(length);
+                if (record != null) {
+                    return record;
+                }
+            } else if (startsWith(HEADER, length)) {
+                header = new String(line, 0, length, StandardCharsets.UTF_8);
+            } else if (startsWith(TRAILER, length)) {
+                trailer = new String(line, 0, length, StandardCharsets.UTF_8);
+            }
+            skippedLines++;
+        }
+        return null;
+    }
+
+    @Override
+    public long lines() {
+        return lines;
+    }
+
+    /**
+     * Decodes the last record line on demand, since it is only wanted for a rejected record.
+     */
+    @Override
+    public String line() {
+        return recordLength < 0 ? null : new String(line, 0, recordLength, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public long skippedLines() {
+        return skippedLines;
+    }
+
+    @Override
+    public String header() {
+        return header;
+    }
+
+    @Override
+    public String trailer() {
+        return trailer;
+    }
+
+    /**
+     * Copies the line starting at the current position into {@link #line} and moves past its
+     * terminator.
+     *
+     * @return the line length without its terminator
+     */
+    private int readLine() throws IOException {
+        int windowSize = this.windowSize;
+        while (true) {
+            if (window == null || position < windowStart || position >= windowStart + window.limit()) {
+                map(windowSize);
+            }
+            int from = (int) (position - windowStart);
+            int limit = window.limit();
+            int end = from;
+            while (end < limit && window.get(end) != '\n') {
+                end++;
+            }
+            if (end < limit || windowStart + limit == size) {
+                int length = end - from;
+                if (line.length < length) {
+                    line = Arrays.copyOf(line, Math.max(length, line.length * 2));
+                }
+                window.get(from, line, 0, length);
+                position = windowStart + Math.min(end + 1, limit);
+                return length > 0 && line[length - 1] == '\r' ? length - 1 : length;
+            }
+            // The line runs past the window: re-map from its start, growing the window if the
+            // line alone is longer than it.
+            if (from == 0) {
+                windowSize = (int) Math.min((long) windowSize * 2, Integer.MAX_VALUE);
+            }
+            map(windowSize);
+        }
+    }
+
+    private void map(int windowSize) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(windowSize, size - windowStart));
+    }
+
+    private boolean startsWith(byte[] prefix, int length) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (line[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean hasQuote(int length) {
+        for (int i = PREFIX.length; i < length; i++) {
+            if (line[i] == '"') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String[] parseQuoted(int length) throws IOException {
+        String[] record = RecordSource.parseCsv(new String(line, PREFIX.length, length - PREFIX.length, StandardCharsets.UTF_8));
+        return record != null && record.length > RECORD_FIELDS ? Arrays.copyOf(record, RECORD_FIELDS) : record;
+    }
+
+    private String[] split(int length) {
+        String[] fields = new String[RECORD_FIELDS];
+        int count = 0;
+        int start = PREFIX.length;
+        for (int i = start; i <= length && count < RECORD_FIELDS; i++) {
+            if (i == length || line[i] == '|') {
+                fields[count++] = field(start, i);
+                start = i + 1;
+            }
+        }
+        return count == RECORD_FIELDS ? fields : Arrays.copyOf(fields, count);
+    }
+
+    /**
+     * Decodes the bytes between {@code start} and {@code end} with the same trimming as
+     * {@link String#trim()}, which is what commons-csv applies.
+     */
+    private String field(int start, int end) {
+        while (start < end && (line[start] & 0xff) <= ' ') {
+            start++;
+        }
+        while (end > start && (line[end - 1] & 0xff) <= ' ') {
+            end--;
+        }
+        return start == end ? "" : new String(line, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
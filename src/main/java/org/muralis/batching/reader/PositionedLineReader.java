@@ -0,0 +1,88 @@
+package org.muralis.batching.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reads UTF-8 lines from a byte stream while keeping track of the exact byte offset of the
+ * next unread line, so a reader can record where it stopped and skip straight back to it.
+ */
+public class PositionedLineReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream inputStream;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferPosition;
+    private int bufferLimit;
+
+    private byte[] line = new byte[256];
+    private long position;
+
+    public PositionedLineReader(InputStream inputStream) {
+        this.inputStream = inputStream;
+    }
+
+    /**
+     * @return the byte offset of the next line that {@link #readLine()} will return
+     */
+    public long position() {
+        return position;
+    }
+
+    /**
+     * Skips the given number of bytes from the current position, typically to resume at an
+     * offset previously obtained from {@link #position()}.
+     */
+    public void skip(long bytes) throws IOException {
+        long buffered = Math.min(bytes, bufferLimit - bufferPosition);
+        bufferPosition += (int) buffered;
+        if (bytes > buffered) {
+            inputStream.skipNBytes(bytes - buffered);
+        }
+        position += bytes;
+    }
+
+    /**
+     * @return the next line without its terminator, or {@code null} at the end of the stream
+     */
+    public String readLine() throws IOException {
+        int length = 0;
+        while (true) {
+            if (bufferPosition == bufferLimit && !fill()) {
+                return length == 0 ? null : decode(length);
+            }
+            byte b = buffer[bufferPosition++];
+            position++;
+            if (b == '\n') {
+                return decode(length);
+            }
+            if (length == line.length) {
+                line = Arrays.copyOf(line, length * 2);
+            }
+            line[length++] = b;
+        }
+    }
+
+    private boolean fill() throws IOException {
+        int read = inputStream.read(buffer, 0, buffer.length);
+        bufferPosition = 0;
+        bufferLimit = Math.max(read, 0);
+        return read > 0;
+    }
+
+    private String decode(int length) {
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        inputStream.close();
+    }
+}
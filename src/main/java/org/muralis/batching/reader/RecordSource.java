@@ -0,0 +1,82 @@
+package org.muralis.batching.reader;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+/**
+ * A positioned source of {@code ~PII~} records from a customer file. Lines that do not carry
+ * the record prefix are skipped, except that the last {@code ~HDR} and {@code ~FTR} lines
+ * passed over are kept. A record line that cannot be split into fields is consumed and
+ * reported by a {@link MalformedRecordException}.
+ */
+public interface RecordSource extends Closeable {
+
+    String RECORD_PREFIX = "~PII~";
+    String HEADER_PREFIX = "~HDR";
+    String TRAILER_PREFIX = "~FTR";
+    CSVFormat RECORD_FORMAT = CSVFormat.DEFAULT.withDelimiter('|').withTrim();
+
+    /**
+     * @return the byte offset just past the last line consumed by {@link #next()}
+     */
+    long position();
+
+    /**
+     * Skips the given number of bytes from the current position, typically to resume at an
+     * offset previously obtained from {@link #position()}.
+     */
+    void skip(long bytes) throws IOException;
+
+    /**
+     * @return the fields of the next record, or {@code null} at the end of the source
+     * @throws MalformedRecordException if the next record line cannot be split into fields
+     */
+    String[] next() throws IOException;
+
+    /**
+     * @return the number of lines consumed so far, not counting any skipped by {@link #skip}
+     */
+    long lines();
+
+    /**
+     * @return the text of the last record line consumed, including its prefix
+     */
+    String line();
+
+    /**
+     * @return the number of lines consumed so far that did not yield a record, such as the
+     * header and trailer
+     */
+    long skippedLines();
+
+    /**
+     * @return the last header line consumed so far, or {@code null} if there was none
+     */
+    String header();
+
+    /**
+     * @return the last trailer line consumed so far, or {@code null} if there was none
+     */
+    String trailer();
+
+    /**
+     * Parses the data following the record prefix with commons-csv.
+     *
+     * @return the record fields, or {@code null} if the data holds no record
+     * @throws MalformedRecordException if a quoted field is not closed properly
+     */
+    static String[] parseCsv(String data) throws IOException {
+        try (CSVParser parser = CSVParser.parse(data, RECORD_FORMAT)) {
+            Iterator<CSVRecord> records = parser.iterator();
+            return records.hasNext() ? records.next().values() : null;
+        } catch (UncheckedIOException e) {
+            throw new MalformedRecordException("Malformed quoted field", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,448 @@
+package org.muralis.batching.reader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Returns the records of another source ordered by person id, so that the records of a family
+ * are adjacent even when the file is not sorted by id. Records with the same id keep their
+ * order in the file, so the first one stays the primary.
+ * <p>
+ * The whole source is read on the first call to {@link #next()}. Records are collected until
+ * their estimated size reaches the buffer size, then sorted and spilled as a run to a temporary
+ * file. At most {@value #MAX_FAN_IN} runs are merged at a time, each read through a share of
+ * the buffer of at least 8 KB, so there are more merge passes, each writing a longer run, when a
+ * file spills more runs than that. The open files and the read buffers of a merge are thus
+ * bounded whatever the size of the file. A file that fits in the buffer is sorted in memory
+ * without any temporary file.
+ * <p>
+ * Records that cannot be sorted, because they cannot be split into fields, are too short or
+ * have a person id that is not a number, come first in file order, for the reader to reject.
+ * <p>
+ * Positions are the bytes of the underlying source consumed up to and including each record in
+ * sorted order, so a position saved by the reader is skipped to again when the source is
+ * sorted anew on restart. The line numbers of the records are counted from the last record
+ * skipped, like the lines of any other source.
+ */
+public class SortingRecordSource implements RecordSource {
+
+    private static final Logger log = LoggerFactory.getLogger(SortingRecordSource.class);
+
+    private static final int RECORD_FIELDS = 7;
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int STRING_OVERHEAD = 48;
+    private static final int MIN_RUN_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_RUN_BUFFER_SIZE = 1024 * 1024;
+    static final int MAX_FAN_IN = 64;
+    private static final Comparator<Entry> ORDER = Comparator.<Entry>comparingLong(entry -> entry.key)
+            .thenComparingLong(entry -> entry.seq);
+
+    private final RecordSource delegate;
+    private final long bufferSize;
+    private final Path tempDirectory;
+
+    private final List<Path> runFiles = new ArrayList<>();
+    private final List<Run> runs = new ArrayList<>();
+    private List<Entry> sorted;
+    private int sortedIndex;
+    private PriorityQueue<Run> merge;
+    private boolean exhausted;
+    private long pendingSkip;
+    private long position;
+    private long line;
+    private long skippedLine;
+    private String lineText;
+
+    /**
+     * @param bufferSize    the estimated size of the records sorted in memory at a time, in bytes
+     * @param tempDirectory the directory for the sorted runs, or {@code null} for the default
+     *                      temporary directory
+     */
+    public SortingRecordSource(RecordSource delegate, long bufferSize, Path tempDirectory) {
+        this.delegate = delegate;
+        this.bufferSize = bufferSize;
+        this.tempDirectory = tempDirectory;
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public void skip(long bytes) throws IOException {
+        if (sorted == null && merge == null) {
+            pendingSkip += bytes;
+            position += bytes;
+            return;
+        }
+        long target = position + bytes;
+        while (position < target && nextEntry() != null) {
+            skippedLine = line;
+        }
+    }
+
+    @Override
+    public String[] next() throws IOException {
+        if (sorted == null && merge == null) {
+            sort();
+            position = 0;
+            long target = pendingSkip;
+            while (position < target && nextEntry() != null) {
+                skippedLine = line;
+            }
+        }
+        Entry entry = nextEntry();
+        if (entry == null) {
+            return null;
+        }
+        lineText = entry.text;
+        if (entry.reason != null) {
+            throw new MalformedRecordException(entry.reason, null);
+        }
+        return entry.fields;
+    }
+
+    /**
+     * @return the next entry in sorted order, moving the position and line past it, or
+     * {@code null} once every entry has been returned
+     */
+    private Entry nextEntry() throws IOException {
+        Entry entry = null;
+        if (sorted != null && sortedIndex < sorted.size()) {
+            entry = sorted.get(sortedIndex);
+            sorted.set(sortedIndex++, null);
+        } else if (merge != null && !merge.isEmpty()) {
+            Run run = merge.poll();
+            entry = run.head;
+            if (run.advance()) {
+                merge.add(run);
+            }
+        }
+        if (entry == null) {
+            if (!exhausted) {
+                exhausted = true;
+                position = delegate.position();
+            }
+            return null;
+        }
+        position += entry.size;
+        line = entry.line;
+        return entry;
+    }
+
+    @Override
+    public long lines() {
+        return line - skippedLine;
+    }
+
+    @Override
+    public String line() {
+        return lineText;
+    }
+
+    @Override
+    public long skippedLines() {
+        return delegate.skippedLines();
+    }
+
+    @Override
+    public String header() {
+        return delegate.header();
+    }
+
+    @Override
+    public String trailer() {
+        return delegate.trailer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            for (Run run : runs) {
+                run.close();
+            }
+            for (Path runFile : runFiles) {
+                Files.deleteIfExists(runFile);
+            }
+        } finally {
+            delegate.close();
+        }
+    }
+
+    /**
+     * Reads the whole source into sorted runs, and either keeps the only one in memory or
+     * merges them down to the last {@value #MAX_FAN_IN} at most, which are merged as they are
+     * read.
+     */
+    private void sort() throws IOException {
+        List<Entry> buffer = new ArrayList<>();
+        long bufferedBytes = 0;
+        long seq = 0;
+        long start = delegate.position();
+        Entry entry;
+        while ((entry = read(seq++)) != null) {
+            entry.size = delegate.position() - start;
+            start = delegate.position();
+            buffer.add(entry);
+            bufferedBytes += entry.estimatedSize();
+            if (bufferedBytes >= bufferSize) {
+                spill(buffer);
+                buffer.clear();
+                bufferedBytes = 0;
+            }
+        }
+        if (runFiles.isEmpty()) {
+            buffer.sort(ORDER);
+            sorted = buffer;
+            log.info("Sorted {} records in memory", seq - 1);
+            return;
+        }
+        if (!buffer.isEmpty()) {
+            spill(buffer);
+        }
+        log.info("Sorted {} records into {} runs to merge", seq - 1, runFiles.size());
+        List<Path> pass = new ArrayList<>(runFiles);
+        while (pass.size() > MAX_FAN_IN) {
+            List<Path> merged = new ArrayList<>();
+            for (int i = 0; i < pass.size(); i += MAX_FAN_IN) {
+                List<Path> group = pass.subList(i, Math.min(i + MAX_FAN_IN, pass.size()));
+                merged.add(group.size() == 1 ? group.get(0) : mergeToRun(group));
+            }
+            log.info("Merged {} runs into {}", pass.size(), merged.size());
+            pass = merged;
+        }
+        merge = open(pass, runs);
+    }
+
+    /**
+     * Merges runs into a new one and deletes them.
+     */
+    private Path mergeToRun(List<Path> group) throws IOException {
+        Path runFile = createRunFile();
+        List<Run> groupRuns = new ArrayList<>();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(runFile),
+                MAX_RUN_BUFFER_SIZE))) {
+            PriorityQueue<Run> queue = open(group, groupRuns);
+            while (!queue.isEmpty()) {
+                Run run = queue.poll();
+                run.head.writeTo(out);
+                if (run.advance()) {
+                    queue.add(run);
+                }
+            }
+        } finally {
+            for (Run run : groupRuns) {
+                run.close();
+            }
+        }
+        for (Path merged : group) {
+            Files.delete(merged);
+        }
+        return runFile;
+    }
+
+    /**
+     * Opens runs, adding them to the given list to be closed, and queues them by their first
+     * entry.
+     */
+    private PriorityQueue<Run> open(List<Path> files, List<Run> opened) throws IOException {
+        int runBufferSize = (int) Math.max(MIN_RUN_BUFFER_SIZE,
+                Math.min(MAX_RUN_BUFFER_SIZE, bufferSize / files.size()));
+        PriorityQueue<Run> queue = new PriorityQueue<>(files.size(), Comparator.comparing((Run run) -> run.head, ORDER));
+        for (Path file : files) {
+            Run run = new Run(file, runBufferSize);
+            opened.add(run);
+            if (run.advance()) {
+                queue.add(run);
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * @return the next record of the source as an entry, or {@code null} at its end
+     */
+    private Entry read(long seq) throws IOException {
+        String[] fields;
+        String reason = null;
+        try {
+            fields = delegate.next();
+            if (fields == null) {
+                return null;
+            }
+        } catch (MalformedRecordException e) {
+            fields = null;
+            reason = e.getMessage();
+        }
+        Entry entry = new Entry();
+        entry.seq = seq;
+        entry.line = delegate.lines();
+        entry.fields = fields;
+        entry.reason = reason;
+        Long personId = fields == null || fields.length < RECORD_FIELDS ? null : personId(fields[0]);
+        if (personId == null) {
+            entry.key = Long.MIN_VALUE;
+            entry.text = delegate.line();
+        } else {
+            entry.key = personId;
+        }
+        return entry;
+    }
+
+    private static Long personId(String field) {
+        try {
+            return Long.parseLong(field);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void spill(List<Entry> buffer) throws IOException {
+        buffer.sort(ORDER);
+        Path runFile = createRunFile();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(runFile),
+                MAX_RUN_BUFFER_SIZE))) {
+            for (Entry entry : buffer) {
+                entry.writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * @return a new empty run file, deleted when the source is closed
+     */
+    private Path createRunFile() throws IOException {
+        Path runFile = Files.createTempFile(tempDirectory == null ? Path.of(System.getProperty("java.io.tmpdir"))
+                : Files.createDirectories(tempDirectory), "customers-", ".run");
+        runFiles.add(runFile);
+        return runFile;
+    }
+
+    /**
+     * A record with its sort key, its order in the file, the line it was read from and the bytes
+     * of the source consumed to read it. The text of the line is only kept for a record that
+     * will be rejected.
+     */
+    private static final class Entry {
+
+        long key;
+        long seq;
+        long line;
+        long size;
+        String[] fields;
+        String text;
+        String reason;
+
+        long estimatedSize() {
+            long size = ENTRY_OVERHEAD;
+            if (fields != null) {
+                for (String field : fields) {
+                    size += STRING_OVERHEAD + field.length();
+                }
+            }
+            if (text != null) {
+                size += STRING_OVERHEAD + text.length();
+            }
+            return size;
+        }
+
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(key);
+            out.writeLong(seq);
+            out.writeLong(line);
+            out.writeLong(size);
+            out.writeInt(fields == null ? -1 : fields.length);
+            if (fields != null) {
+                for (String field : fields) {
+                    writeString(out, field);
+                }
+            }
+            writeString(out, text);
+            writeString(out, reason);
+        }
+
+        static Entry readFrom(DataInputStream in) throws IOException {
+            Entry entry = new Entry();
+            try {
+                entry.key = in.readLong();
+            } catch (EOFException e) {
+                return null;
+            }
+            entry.seq = in.readLong();
+            entry.line = in.readLong();
+            entry.size = in.readLong();
+            int fieldCount = in.readInt();
+            if (fieldCount >= 0) {
+                entry.fields = new String[fieldCount];
+                for (int i = 0; i < fieldCount; i++) {
+                    entry.fields[i] = readString(in);
+                }
+            }
+            entry.text = readString(in);
+            entry.reason = readString(in);
+            return entry;
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static String readString(DataInputStream in) throws IOException {
+            int length = in.readInt();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * A sorted run being merged, positioned on its next entry.
+     */
+    private static final class Run implements Closeable {
+
+        private final DataInputStream in;
+        Entry head;
+
+        Run(Path file, int bufferSize) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), bufferSize));
+        }
+
+        /**
+         * @return whether the run has another entry
+         */
+        boolean advance() throws IOException {
+            head = Entry.readFrom(in);
+            return head != null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
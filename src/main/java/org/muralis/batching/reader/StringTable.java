@@ -0,0 +1,43 @@
+package org.muralis.batching.reader;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A bounded table of canonical string instances, so that a value repeated across many records
+ * is held once instead of once per record. When the table is full it is cleared, which keeps
+ * its footprint fixed while runs of repeated values still share an instance.
+ */
+final class StringTable {
+
+    private final int maxSize;
+    private final Map<String, String> strings;
+
+    StringTable(int maxSize) {
+        this.maxSize = maxSize;
+        this.strings = new HashMap<>(maxSize * 4 / 3 + 1);
+    }
+
+    /**
+     * @return the instance in the table equal to {@code value}, adding {@code value} if there
+     * is none
+     */
+    String canonical(String value) {
+        if (value == null) {
+            return null;
+        }
+        String canonical = strings.get(value);
+        if (canonical != null) {
+            return canonical;
+        }
+        if (strings.size() >= maxSize) {
+            strings.clear();
+        }
+        strings.put(value, value);
+        return value;
+    }
+
+    void clear() {
+        strings.clear();
+    }
+}
@@ -0,0 +1,69 @@
+package org.muralis.batching.reader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.item.ItemStreamException;
+
+/**
+ * What to do when the {@code ~FTR|<count>} trailer of a customer file does not match the number
+ * of {@code ~PII~} record lines read, including any rejected as malformed, or when the file ends
+ * without a trailer, which usually means it was truncated. A trailer with a blank count is not
+ * checked.
+ */
+public enum TrailerCheck {
+
+    /** Fail the step. */
+    FAIL,
+
+    /** Log a warning and record the mismatch in the execution context. */
+    WARN,
+
+    /** Do not check the trailer. */
+    OFF;
+
+    private static final Logger log = LoggerFactory.getLogger(TrailerCheck.class);
+
+    /**
+     * @param trailer     the trailer line, or {@code null} if none was found
+     * @param recordCount the number of record lines read
+     * @return whether the trailer matched, was blank or was not checked
+     * @throws ItemStreamException if it did not match and this check is {@link #FAIL}
+     */
+    public boolean verify(String trailer, long recordCount) {
+        if (this == OFF) {
+            return true;
+        }
+        String mismatch = mismatch(trailer, recordCount);
+        if (mismatch == null) {
+            return true;
+        }
+        if (this == FAIL) {
+            throw new ItemStreamException(mismatch);
+        }
+        log.warn(mismatch);
+        return false;
+    }
+
+    private static String mismatch(String trailer, long recordCount) {
+        if (trailer == null) {
+            return "No trailer found after " + recordCount + " records; the file may be truncated";
+        }
+        String count = trailerCount(trailer);
+        if (count.isEmpty()) {
+            return null;
+        }
+        try {
+            if (Long.parseLong(count) == recordCount) {
+                return null;
+            }
+        } catch (NumberFormatException e) {
+            return "Trailer count '" + count + "' is not a number";
+        }
+        return "Trailer count " + count + " does not match the " + recordCount + " records read";
+    }
+
+    private static String trailerCount(String trailer) {
+        String[] fields = trailer.split("\\|", -1);
+        return fields.length < 2 ? "" : fields[1].trim();
+    }
+}
@@ -1,71 +1,55 @@
 package org.muralis.batching.validator;
 
-import io.vavr.collection.CharSeq;
-import io.vavr.collection.Seq;
-import io.vavr.control.Validation;
 import org.muralis.batching.model.Address;
 
 public class AddressValidator implements Validator<Address> {
 
-    private static final String VALID_STREET_CHARS = "[a-zA-Z0-9. ]";
-    private static final String VALID_CITY_CHARS = "[a-zA-Z ]";
-    private static final String VALID_STATE_CHARS = "[A-Z]";
-    private static final String VALID_ZIP_CHARS = "[0-9]";
+    private static final CharClass VALID_STREET_CHARS = CharClass.of("[a-zA-Z0-9. ]");
+    private static final CharClass VALID_CITY_CHARS = CharClass.of("[a-zA-Z ]");
+    private static final CharClass VALID_STATE_CHARS = CharClass.of("[A-Z]");
+    private static final CharClass VALID_ZIP_CHARS = CharClass.of("[0-9]");
 
     @Override
-    public Validation<Seq<String>, Address> validate(Address address) {
-        return Validation.combine(
-                validateStreet(address.getStreet()),
-                validateCity(address.getCity()),
-                validateState(address.getState()),
-                validateZip(address.getZip())
-        ).ap((street, city, state, zip) -> address)
-                .mapError(errors -> errors.map(error -> "Address: " + error));
+    public void validate(Address address, ErrorAccumulator errors) {
+        validateStreet(address.getStreet(), errors);
+        validateCity(address.getCity(), errors);
+        validateState(address.getState(), errors);
+        validateZip(address.getZip(), errors);
     }
 
-    private Validation<String, String> validateStreet(String street) {
+    private void validateStreet(String street, ErrorAccumulator errors) {
         if (street == null || street.isBlank()) {
-            return Validation.invalid("Street cannot be blank");
+            errors.add(ErrorCode.STREET_BLANK);
+        } else if (!VALID_STREET_CHARS.matchesAll(street)) {
+            errors.addInvalidCharacters(ErrorCode.STREET_INVALID_CHARACTERS, VALID_STREET_CHARS, street);
         }
-        return CharSeq.of(street).replaceAll(VALID_STREET_CHARS, "").transform(seq -> seq.isEmpty()
-                ? Validation.valid(street)
-                : Validation.invalid("Street contains invalid characters: '"
-                + seq.distinct().sorted() + "'"));
     }
 
-    private Validation<String, String> validateCity(String city) {
+    private void validateCity(String city, ErrorAccumulator errors) {
         if (city == null || city.isBlank()) {
-            return Validation.invalid("City cannot be blank");
+            errors.add(ErrorCode.CITY_BLANK);
+        } else if (!VALID_CITY_CHARS.matchesAll(city)) {
+            errors.addInvalidCharacters(ErrorCode.CITY_INVALID_CHARACTERS, VALID_CITY_CHARS, city);
         }
-        return CharSeq.of(city).replaceAll(VALID_CITY_CHARS, "").transform(seq -> seq.isEmpty()
-                ? Validation.valid(city)
-                : Validation.invalid("City contains invalid characters: '"
-                + seq.distinct().sorted() + "'"));
     }
 
-    private Validation<String, String> validateState(String state) {
+    private void validateState(String state, ErrorAccumulator errors) {
         if (state == null || state.isBlank()) {
-            return Validation.invalid("State cannot be blank");
+            errors.add(ErrorCode.STATE_BLANK);
+        } else if (state.length() != 2) {
+            errors.add(ErrorCode.STATE_WRONG_LENGTH);
+        } else if (!VALID_STATE_CHARS.matchesAll(state)) {
+            errors.addInvalidCharacters(ErrorCode.STATE_INVALID_CHARACTERS, VALID_STATE_CHARS, state);
         }
-        if (state.length() != 2) {
-            return Validation.invalid("State must be 2 characters long");
-        }
-        return CharSeq.of(state).replaceAll(VALID_STATE_CHARS, "").transform(seq -> seq.isEmpty()
-                ? Validation.valid(state)
-                : Validation.invalid("State contains invalid characters: '"
-                + seq.distinct().sorted() + "'"));
     }
 
-    private Validation<String, String> validateZip(String zip) {
+    private void validateZip(String zip, ErrorAccumulator errors) {
         if (zip == null || zip.isBlank()) {
-            return Validation.invalid("Zip cannot be blank");
-        }
-        if (zip.length() != 5) {
-            return Validation.invalid("Zip must be 5 digits long");
+            errors.add(ErrorCode.ZIP_BLANK);
+        } else if (zip.length() != 5) {
+            errors.add(ErrorCode.ZIP_WRONG_LENGTH);
+        } else if (!VALID_ZIP_CHARS.matchesAll(zip)) {
+            errors.addInvalidCharacters(ErrorCode.ZIP_INVALID_CHARACTERS, VALID_ZIP_CHARS, zip);
         }
-        return CharSeq.of(zip).replaceAll(VALID_ZIP_CHARS, "").transform(seq -> seq.isEmpty()
-                ? Validation.valid(zip)
-                : Validation.invalid("Zip contains invalid characters: '"
-                + seq.distinct().sorted() + "'"));
     }
 }
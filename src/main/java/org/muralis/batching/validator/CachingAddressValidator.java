@@ -0,0 +1,75 @@
+package org.muralis.batching.validator;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.muralis.batching.model.Address;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers the outcome of an address validator for the most recently seen addresses.
+ * Dependents usually share the address of their primary, and streets and cities repeat across
+ * a file, so most addresses are validated once.
+ * <p>
+ * The cache is a least-recently-used map of at most {@code maxSize} entries, keyed on the
+ * street, city, state and zip of the address. Lookups and evictions are counted in the
+ * {@code validator.cache} counter, tagged with the {@code hit}, {@code miss} or
+ * {@code eviction} result.
+ */
+public class CachingAddressValidator implements Validator<Address> {
+
+    private final Validator<Address> delegate;
+    private final Map<Key, ValidationErrors> cache;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public CachingAddressValidator(Validator<Address> delegate, int maxSize, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.hits = cacheCounter("hit", meterRegistry);
+        this.misses = cacheCounter("miss", meterRegistry);
+        this.evictions = cacheCounter("eviction", meterRegistry);
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, ValidationErrors> eldest) {
+                if (size() > maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public void validate(Address address, ErrorAccumulator errors) {
+        Key key = new Key(address.getStreet(), address.getCity(), address.getState(), address.getZip());
+        ValidationErrors cached;
+        synchronized (cache) {
+            cached = cache.get(key);
+        }
+        if (cached != null) {
+            hits.increment();
+            errors.addAll(cached);
+        } else {
+            misses.increment();
+            int from = errors.size();
+            delegate.validate(address, errors);
+            ValidationErrors found = errors.toErrors(from);
+            synchronized (cache) {
+                cache.put(key, found);
+            }
+        }
+    }
+
+    private static Counter cacheCounter(String result, MeterRegistry meterRegistry) {
+        return Counter.builder("validator.cache")
+                .tag("validator", AddressValidator.class.getSimpleName())
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Key(String street, String city, String state, String zip) {
+    }
+}
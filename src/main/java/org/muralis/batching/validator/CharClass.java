@@ -0,0 +1,129 @@
+package org.muralis.batching.validator;
+
+/**
+ * A set of allowed ASCII characters, built once from a regex-style bracket expression such as
+ * {@code "[a-zA-Z0-9. ]"}. Only literal characters and ranges are supported.
+ * <p>
+ * Valid input is checked with a single table lookup per character and no allocation. The
+ * offending ASCII characters of a failing value are collected as a 128-bit mask, which holds
+ * them de-duplicated and in order; any non-ASCII ones are kept as a sorted string.
+ */
+public final class CharClass {
+
+    private static final int TABLE_SIZE = 128;
+
+    private final String definition;
+    private final boolean[] allowed = new boolean[TABLE_SIZE];
+
+    private CharClass(String definition) {
+        this.definition = definition;
+        if (definition.length() < 2 || definition.charAt(0) != '[' || definition.charAt(definition.length() - 1) != ']') {
+            throw new IllegalArgumentException("Not a bracket expression: " + definition);
+        }
+        int end = definition.length() - 1;
+        for (int i = 1; i < end; i++) {
+            char from = literal(definition.charAt(i));
+            if (i + 2 < end && definition.charAt(i + 1) == '-') {
+                char to = literal(definition.charAt(i + 2));
+                if (to < from) {
+                    throw new IllegalArgumentException("Invalid range " + from + "-" + to + " in " + definition);
+                }
+                for (char c = from; c <= to; c++) {
+                    allowed[c] = true;
+                }
+                i += 2;
+            } else {
+                allowed[from] = true;
+            }
+        }
+    }
+
+    public static CharClass of(String definition) {
+        return new CharClass(definition);
+    }
+
+    /**
+     * @return whether every character of {@code value} belongs to this class
+     */
+    public boolean matchesAll(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= TABLE_SIZE || !allowed[c]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the characters of {@code value} outside this class, de-duplicated and sorted
+     */
+    public String invalidCharacters(CharSequence value) {
+        return characters(invalidMask(value, 0), invalidMask(value, 1), invalidNonAscii(value));
+    }
+
+    /**
+     * @param word 0 for the characters below 64, 1 for the rest of ASCII
+     * @return a bit for every ASCII character of {@code value} in the given word outside this
+     * class, the lowest bit standing for character {@code 64 * word}
+     */
+    public long invalidMask(CharSequence value, int word) {
+        long mask = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < TABLE_SIZE && !allowed[c] && c >> 6 == word) {
+                mask |= 1L << (c & 63);
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * @return the non-ASCII characters of {@code value}, which are all outside this class,
+     * de-duplicated and sorted, or {@code null} if there are none
+     */
+    public String invalidNonAscii(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= TABLE_SIZE) {
+                StringBuilder invalid = new StringBuilder();
+                value.chars()
+                        .filter(c -> c >= TABLE_SIZE)
+                        .distinct()
+                        .sorted()
+                        .forEach(c -> invalid.append((char) c));
+                return invalid.toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the characters of the two ASCII masks in order, followed by the non-ASCII ones
+     */
+    static String characters(long low, long high, String nonAscii) {
+        StringBuilder characters = new StringBuilder(Long.bitCount(low) + Long.bitCount(high)
+                + (nonAscii == null ? 0 : nonAscii.length()));
+        for (long bits = low; bits != 0; bits &= bits - 1) {
+            characters.append((char) Long.numberOfTrailingZeros(bits));
+        }
+        for (long bits = high; bits != 0; bits &= bits - 1) {
+            characters.append((char) (64 + Long.numberOfTrailingZeros(bits)));
+        }
+        if (nonAscii != null) {
+            characters.append(nonAscii);
+        }
+        return characters.toString();
+    }
+
+    private char literal(char c) {
+        if (c >= TABLE_SIZE || c == '[' || c == ']' || c == '\\' || c == '^') {
+            throw new IllegalArgumentException("Unsupported character '" + c + "' in " + definition);
+        }
+        return c;
+    }
+
+    @Override
+    public String toString() {
+        return definition;
+    }
+}
@@ -1,64 +1,153 @@
 package org.muralis.batching.validator;
 
-import io.vavr.collection.Seq;
-import io.vavr.control.Validation;
-
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 
-import static io.vavr.API.Invalid;
-import static io.vavr.API.Valid;
-
+/**
+ * Validates an object graph by applying the registered validator for every {@link Validatable}
+ * it reaches.
+ * <p>
+ * The fields to descend into are worked out once per class and cached as a {@link TraversalPlan}:
+ * only fields that can hold a {@link Validatable} or a collection of them are kept, and they are
+ * read through method handles, so validating a record does no reflection lookups.
+ */
 public class CompositeValidator implements Validator<Validatable> {
 
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
     private final Map<Class<? extends Validatable>, Validator<?>> validatorMap;
 
+    private final ClassValue<TraversalPlan> plans = new ClassValue<>() {
+        @Override
+        protected TraversalPlan computeValue(Class<?> type) {
+            return TraversalPlan.of(type, validatorMap.get(type));
+        }
+    };
+
     public CompositeValidator(Map<Class<? extends Validatable>, Validator<?>> validatorMap) {
         this.validatorMap = validatorMap;
     }
 
     @Override
-    public Validation<Seq<String>, Validatable> validate(Validatable object) {
-        java.util.List<String> errors = new ArrayList<>();
+    public void validate(Validatable object, ErrorAccumulator errors) {
         validateRecursively(object, errors);
-        if (errors.isEmpty()) {
-            return Valid(object);
-        } else {
-            return Invalid(io.vavr.collection.List.ofAll(errors));
-        }
     }
 
     @SuppressWarnings("unchecked")
-    private void validateRecursively(Validatable object, java.util.List<String> errors) {
+    private void validateRecursively(Validatable object, ErrorAccumulator errors) {
         if (object == null) {
             return;
         }
+        TraversalPlan plan = plans.get(object.getClass());
 
         // Apply the validator for the object itself
-        Validator<Validatable> validator = (Validator<Validatable>) validatorMap.get(object.getClass());
-        if (validator != null) {
-            validator.validate(object).mapError(e -> errors.addAll(e.toJavaList()));
+        if (plan.validator != null) {
+            ((Validator<Validatable>) plan.validator).validate(object, errors);
         }
 
         // Recursively validate nested fields
-        for (Field field : object.getClass().getDeclaredFields()) {
-            field.setAccessible(true);
-            try {
-                Object fieldValue = field.get(object);
-                if (fieldValue instanceof Validatable) {
-                    validateRecursively((Validatable) fieldValue, errors);
-                } else if (fieldValue instanceof Collection) {
-                    for (Object item : (Collection<?>) fieldValue) {
-                        if (item instanceof Validatable) {
-                            validateRecursively((Validatable) item, errors);
-                        }
+        for (String field : plan.inaccessibleFields) {
+            errors.addInaccessibleField(field);
+        }
+        for (MethodHandle getter : plan.getters) {
+            validateValue(get(getter, object), errors);
+        }
+    }
+
+    private void validateValue(Object value, ErrorAccumulator errors) {
+        if (value instanceof Validatable validatable) {
+            validateRecursively(validatable, errors);
+        } else if (value instanceof List<?> list && value instanceof RandomAccess) {
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i) instanceof Validatable validatable) {
+                    validateRecursively(validatable, errors);
+                }
+            }
+        } else if (value instanceof Collection<?> collection) {
+            for (Object item : collection) {
+                if (item instanceof Validatable validatable) {
+                    validateRecursively(validatable, errors);
+                }
+            }
+        }
+    }
+
+    private static Object get(MethodHandle getter, Object object) {
+        try {
+            return (Object) getter.invokeExact(object);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The validator and the nested-field getters for one class.
+     */
+    private static final class TraversalPlan {
+
+        private final Validator<?> validator;
+        private final MethodHandle[] getters;
+        private final String[] inaccessibleFields;
+
+        private TraversalPlan(Validator<?> validator, MethodHandle[] getters, String[] inaccessibleFields) {
+            this.validator = validator;
+            this.getters = getters;
+            this.inaccessibleFields = inaccessibleFields;
+        }
+
+        static TraversalPlan of(Class<?> type, Validator<?> validator) {
+            List<MethodHandle> getters = new ArrayList<>();
+            List<String> inaccessibleFields = new ArrayList<>();
+            MethodHandles.Lookup lookup = null;
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic() || !mayHoldValidatable(field)) {
+                    continue;
+                }
+                try {
+                    if (lookup == null) {
+                        lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
                     }
+                    getters.add(lookup.unreflectGetter(field).asType(GETTER_TYPE));
+                } catch (IllegalAccessException e) {
+                    inaccessibleFields.add(field.getName());
+                }
+            }
+            return new TraversalPlan(validator, getters.toArray(MethodHandle[]::new), inaccessibleFields.toArray(String[]::new));
+        }
+
+        private static boolean mayHoldValidatable(Field field) {
+            Class<?> type = field.getType();
+            if (Collection.class.isAssignableFrom(type)) {
+                Type genericType = field.getGenericType();
+                if (genericType instanceof ParameterizedType parameterized
+                        && parameterized.getActualTypeArguments()[0] instanceof Class<?> elementType) {
+                    return mayHold(elementType);
                 }
-            } catch (IllegalAccessException e) {
-                errors.add("Error accessing field: " + field.getName());
+                return true;
+            }
+            return mayHold(type);
+        }
+
+        /**
+         * @return whether a value declared as {@code type} can be a {@link Validatable}
+         */
+        private static boolean mayHold(Class<?> type) {
+            if (type.isPrimitive() || type.isArray()) {
+                return false;
             }
+            return Validatable.class.isAssignableFrom(type) || !Modifier.isFinal(type.getModifiers());
         }
     }
 }
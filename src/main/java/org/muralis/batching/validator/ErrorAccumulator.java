@@ -0,0 +1,87 @@
+package org.muralis.batching.validator;
+
+import java.util.Arrays;
+
+/**
+ * Collects the errors found by validators without building any message. An accumulator is
+ * meant to be cleared and reused for every object validated on a thread; only an object with
+ * errors costs a {@link ValidationErrors} copy.
+ */
+public final class ErrorAccumulator {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    private byte[] codes = new byte[INITIAL_CAPACITY];
+    private long[] masks = new long[2 * INITIAL_CAPACITY];
+    private String[] details = new String[INITIAL_CAPACITY];
+    private int size;
+
+    public void add(ErrorCode code) {
+        add(code, 0, 0, null);
+    }
+
+    /**
+     * Adds an error for the characters of {@code value} outside {@code charClass}.
+     */
+    public void addInvalidCharacters(ErrorCode code, CharClass charClass, CharSequence value) {
+        add(code, charClass.invalidMask(value, 0), charClass.invalidMask(value, 1), charClass.invalidNonAscii(value));
+    }
+
+    /**
+     * Adds an error for a field that could not be read.
+     */
+    public void addInaccessibleField(String field) {
+        add(ErrorCode.FIELD_INACCESSIBLE, 0, 0, field);
+    }
+
+    void add(ErrorCode code, long low, long high, String detail) {
+        if (size == codes.length) {
+            codes = Arrays.copyOf(codes, 2 * size);
+            masks = Arrays.copyOf(masks, 4 * size);
+            details = Arrays.copyOf(details, 2 * size);
+        }
+        codes[size] = (byte) code.ordinal();
+        masks[2 * size] = low;
+        masks[2 * size + 1] = high;
+        details[size] = detail;
+        size++;
+    }
+
+    /**
+     * Adds errors found earlier, such as ones remembered for a value.
+     */
+    public void addAll(ValidationErrors errors) {
+        errors.copyTo(this);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public ErrorCode getCode(int index) {
+        return ErrorCode.of(codes[index]);
+    }
+
+    public void clear() {
+        Arrays.fill(details, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * @return a copy of the errors added so far
+     */
+    public ValidationErrors toErrors() {
+        return toErrors(0);
+    }
+
+    /**
+     * @return a copy of the errors added since the accumulator held {@code from} errors
+     */
+    public ValidationErrors toErrors(int from) {
+        return ValidationErrors.of(codes, masks, details, from, size);
+    }
+}
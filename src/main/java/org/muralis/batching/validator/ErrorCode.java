@@ -0,0 +1,55 @@
+package org.muralis.batching.validator;
+
+/**
+ * The rules a beneficiary can break, with the path of the field each one applies to and the
+ * message it is reported with. Codes for invalid characters are rendered with the offending
+ * characters quoted after the message, and {@link #FIELD_INACCESSIBLE} with the field name.
+ */
+public enum ErrorCode {
+
+    PERSON_ID_TOO_LOW("personId", "Person ID must be at least 1"),
+    FIRST_NAME_BLANK("firstName", "First Name cannot be blank"),
+    FIRST_NAME_INVALID_CHARACTERS("firstName", "First Name contains invalid characters"),
+    LAST_NAME_BLANK("lastName", "Last Name cannot be blank"),
+    LAST_NAME_INVALID_CHARACTERS("lastName", "Last Name contains invalid characters"),
+    STREET_BLANK("address.street", "Address: Street cannot be blank"),
+    STREET_INVALID_CHARACTERS("address.street", "Address: Street contains invalid characters"),
+    CITY_BLANK("address.city", "Address: City cannot be blank"),
+    CITY_INVALID_CHARACTERS("address.city", "Address: City contains invalid characters"),
+    STATE_BLANK("address.state", "Address: State cannot be blank"),
+    STATE_WRONG_LENGTH("address.state", "Address: State must be 2 characters long"),
+    STATE_INVALID_CHARACTERS("address.state", "Address: State contains invalid characters"),
+    ZIP_BLANK("address.zip", "Address: Zip cannot be blank"),
+    ZIP_WRONG_LENGTH("address.zip", "Address: Zip must be 5 digits long"),
+    ZIP_INVALID_CHARACTERS("address.zip", "Address: Zip contains invalid characters"),
+    FIELD_INACCESSIBLE(null, "Error accessing field");
+
+    private static final ErrorCode[] VALUES = values();
+
+    private final String fieldPath;
+    private final String message;
+
+    ErrorCode(String fieldPath, String message) {
+        this.fieldPath = fieldPath;
+        this.message = message;
+    }
+
+    static ErrorCode of(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * @return the path of the field the rule applies to, relative to the beneficiary, or
+     * {@code null} if it depends on the error
+     */
+    public String getFieldPath() {
+        return fieldPath;
+    }
+
+    /**
+     * @return the message of the rule, without the offending characters or field name
+     */
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,63 @@
+package org.muralis.batching.validator;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the invocations and latency of a validator in a {@code validator.latency} timer, and
+ * every error it reports in a {@code validator.failures} counter tagged with the rule that
+ * failed.
+ * <p>
+ * The rule is the message of the {@link ErrorCode}, without any offending characters, so that
+ * there is a single counter per rule.
+ *
+ * @param <T> the type of the object to validate
+ */
+public class TimedValidator<T extends Validatable> implements Validator<T> {
+
+    private final Validator<T> delegate;
+    private final MeterRegistry meterRegistry;
+    private final String name;
+    private final Timer timer;
+    private final Map<ErrorCode, Counter> failureCounters = new ConcurrentHashMap<>();
+
+    public TimedValidator(Validator<T> delegate, MeterRegistry meterRegistry) {
+        this(delegate, delegate.getClass().getSimpleName(), meterRegistry);
+    }
+
+    /**
+     * @param name the {@code validator} tag of the meters, for a delegate that decorates the
+     *             validator it reports on
+     */
+    public TimedValidator(Validator<T> delegate, String name, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.name = name;
+        this.timer = Timer.builder("validator.latency")
+                .tag("validator", name)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void validate(T object, ErrorAccumulator errors) {
+        int from = errors.size();
+        long start = System.nanoTime();
+        delegate.validate(object, errors);
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        for (int i = from; i < errors.size(); i++) {
+            failureCounter(errors.getCode(i)).increment();
+        }
+    }
+
+    private Counter failureCounter(ErrorCode code) {
+        return failureCounters.computeIfAbsent(code, rule -> Counter.builder("validator.failures")
+                .tag("validator", name)
+                .tag("rule", rule.getMessage())
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,71 @@
+package org.muralis.batching.validator;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * The errors found in an object, held as an {@link ErrorCode} per error together with the
+ * offending characters as a 128-bit ASCII mask, or the detail text for non-ASCII characters and
+ * inaccessible fields.
+ * <p>
+ * As a {@code List<String>}, every error is rendered to its message only when it is read, as
+ * when the invalid beneficiary holding it is written out. The messages are the same as those of
+ * the validators that built strings eagerly.
+ */
+public final class ValidationErrors extends AbstractList<String> implements RandomAccess {
+
+    static final ValidationErrors EMPTY = new ValidationErrors(new byte[0], new long[0], new String[0]);
+
+    private final byte[] codes;
+    private final long[] masks;
+    private final String[] details;
+
+    /**
+     * @param masks   two words of invalid characters per error
+     * @param details a detail per error, possibly {@code null}
+     */
+    ValidationErrors(byte[] codes, long[] masks, String[] details) {
+        this.codes = codes;
+        this.masks = masks;
+        this.details = details;
+    }
+
+    public ErrorCode getCode(int index) {
+        return ErrorCode.of(codes[index]);
+    }
+
+    @Override
+    public String get(int index) {
+        ErrorCode code = getCode(index);
+        long low = masks[2 * index];
+        long high = masks[2 * index + 1];
+        String detail = details[index];
+        if (code == ErrorCode.FIELD_INACCESSIBLE) {
+            return code.getMessage() + ": " + detail;
+        }
+        if (low == 0 && high == 0 && detail == null) {
+            return code.getMessage();
+        }
+        return code.getMessage() + ": '" + CharClass.characters(low, high, detail) + "'";
+    }
+
+    @Override
+    public int size() {
+        return codes.length;
+    }
+
+    void copyTo(ErrorAccumulator accumulator) {
+        for (int i = 0; i < codes.length; i++) {
+            accumulator.add(ErrorCode.of(codes[i]), masks[2 * i], masks[2 * i + 1], details[i]);
+        }
+    }
+
+    static ValidationErrors of(byte[] codes, long[] masks, String[] details, int from, int to) {
+        if (from == to) {
+            return EMPTY;
+        }
+        return new ValidationErrors(Arrays.copyOfRange(codes, from, to), Arrays.copyOfRange(masks, 2 * from, 2 * to),
+                Arrays.copyOfRange(details, from, to));
+    }
+}
@@ -1,10 +1,13 @@
 package org.muralis.batching.validator;
 
-import io.vavr.collection.Seq;
 import io.vavr.control.Validation;
 
 /**
  * A generic interface for validating objects that implement the {@link Validatable} interface.
+ * <p>
+ * Validators report errors as {@link ErrorCode}s into an {@link ErrorAccumulator}, so that
+ * validating an object builds no message; messages are rendered from the
+ * {@link ValidationErrors} only when they are read.
  *
  * @param <T> the type of the object to validate
  */
@@ -12,10 +15,22 @@ import io.vavr.control.Validation;
 public interface Validator<T extends Validatable> {
 
     /**
-     * Validates the given object.
+     * Validates the given object, adding an error for every rule it breaks.
      *
      * @param object the object to validate
-     * @return a {@link Validation} containing either a sequence of error messages or the valid object
+     * @param errors the accumulator to add the errors to
      */
-    Validation<Seq<String>, T> validate(T object);
+    void validate(T object, ErrorAccumulator errors);
+
+    /**
+     * Validates the given object with an accumulator of its own.
+     *
+     * @param object the object to validate
+     * @return a {@link Validation} containing either the errors found or the valid object
+     */
+    default Validation<ValidationErrors, T> validate(T object) {
+        ErrorAccumulator errors = new ErrorAccumulator();
+        validate(object, errors);
+        return errors.isEmpty() ? Validation.valid(object) : Validation.invalid(errors.toErrors());
+    }
 }
@@ -0,0 +1,181 @@
+package org.muralis.batching.writer;
+
+import org.muralis.batching.model.Address;
+import org.muralis.batching.model.Beneficiary;
+import org.muralis.batching.model.InvalidBeneficiary;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes {@link Beneficiary} and {@link InvalidBeneficiary} families as compact binary records
+ * and decodes them again. A file starts with the four bytes {@link #MAGIC}, followed by one
+ * record per family: a big-endian {@code int} payload length and the payload.
+ * <p>
+ * A payload starts with a type byte, {@link #BENEFICIARY} or {@link #INVALID_BENEFICIARY}.
+ * <pre>
+ * beneficiary         = personId:long? firstName:string lastName:string address? dependents:list(beneficiary)
+ * address             = street:string city:string state:string zip:string
+ * invalid-beneficiary = beneficiary? errors:list(string)
+ * string              = length(UTF-8 byte count) and the UTF-8 bytes
+ * list(x)             = length(size) and the elements
+ * length(n)           = n + 1, or 0 for null, in one unsigned byte if below 255, otherwise
+ *                       the byte 255 followed by an int
+ * x?                  = a presence byte (0 or 1) and x if present
+ * </pre>
+ * Null dependents are left out, as in the XML and delimited formats.
+ */
+public final class BeneficiaryBinaryRecords {
+
+    public static final byte[] MAGIC = {'B', 'N', 'F', '1'};
+    public static final byte BENEFICIARY = 1;
+    public static final byte INVALID_BENEFICIARY = 2;
+
+    private static final int LONG_LENGTH = 0xFF;
+
+    private BeneficiaryBinaryRecords() {
+    }
+
+    public static void beneficiary(DataOutput out, Beneficiary beneficiary) throws IOException {
+        out.writeByte(BENEFICIARY);
+        writeBeneficiary(out, beneficiary);
+    }
+
+    public static void invalidBeneficiary(DataOutput out, InvalidBeneficiary invalidBeneficiary) throws IOException {
+        out.writeByte(INVALID_BENEFICIARY);
+        Beneficiary beneficiary = invalidBeneficiary.getBeneficiary();
+        out.writeBoolean(beneficiary != null);
+        if (beneficiary != null) {
+            writeBeneficiary(out, beneficiary);
+        }
+        List<String> errors = invalidBeneficiary.getErrors();
+        writeLength(out, errors == null ? -1 : errors.size());
+        if (errors != null) {
+            for (String error : errors) {
+                writeString(out, error);
+            }
+        }
+    }
+
+    /**
+     * @return the {@link Beneficiary} or {@link InvalidBeneficiary} encoded in a payload
+     */
+    public static Object read(DataInput in) throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+            case BENEFICIARY -> readBeneficiary(in);
+            case INVALID_BENEFICIARY -> {
+                Beneficiary beneficiary = in.readBoolean() ? readBeneficiary(in) : null;
+                int size = readLength(in);
+                List<String> errors = size < 0 ? null : new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    errors.add(readString(in));
+                }
+                yield InvalidBeneficiary.builder().beneficiary(beneficiary).errors(errors).build();
+            }
+            default -> throw new IOException("Unknown record type " + type);
+        };
+    }
+
+    private static void writeBeneficiary(DataOutput out, Beneficiary beneficiary) throws IOException {
+        out.writeBoolean(beneficiary.getPersonId() != null);
+        if (beneficiary.getPersonId() != null) {
+            out.writeLong(beneficiary.getPersonId());
+        }
+        writeString(out, beneficiary.getFirstName());
+        writeString(out, beneficiary.getLastName());
+        Address address = beneficiary.getAddress();
+        out.writeBoolean(address != null);
+        if (address != null) {
+            writeString(out, address.getStreet());
+            writeString(out, address.getCity());
+            writeString(out, address.getState());
+            writeString(out, address.getZip());
+        }
+        List<Beneficiary> dependents = beneficiary.getDependents();
+        if (dependents == null) {
+            writeLength(out, -1);
+            return;
+        }
+        int size = 0;
+        for (Beneficiary dependent : dependents) {
+            if (dependent != null) {
+                size++;
+            }
+        }
+        writeLength(out, size);
+        for (Beneficiary dependent : dependents) {
+            if (dependent != null) {
+                writeBeneficiary(out, dependent);
+            }
+        }
+    }
+
+    private static Beneficiary readBeneficiary(DataInput in) throws IOException {
+        Beneficiary beneficiary = new Beneficiary();
+        if (in.readBoolean()) {
+            beneficiary.setPersonId(in.readLong());
+        }
+        beneficiary.setFirstName(readString(in));
+        beneficiary.setLastName(readString(in));
+        if (in.readBoolean()) {
+            beneficiary.setAddress(Address.builder()
+                    .street(readString(in))
+                    .city(readString(in))
+                    .state(readString(in))
+                    .zip(readString(in))
+                    .build());
+        }
+        int size = readLength(in);
+        if (size >= 0) {
+            List<Beneficiary> dependents = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                dependents.add(readBeneficiary(in));
+            }
+            beneficiary.setDependents(dependents);
+        }
+        return beneficiary;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeLength(out, -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeLength(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = readLength(in);
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a length or size, or -1 for null.
+     */
+    private static void writeLength(DataOutput out, int length) throws IOException {
+        int value = length + 1;
+        if (value < LONG_LENGTH) {
+            out.writeByte(value);
+        } else {
+            out.writeByte(LONG_LENGTH);
+            out.writeInt(value);
+        }
+    }
+
+    private static int readLength(DataInput in) throws IOException {
+        int value = in.readUnsignedByte();
+        return (value < LONG_LENGTH ? value : in.readInt()) - 1;
+    }
+}
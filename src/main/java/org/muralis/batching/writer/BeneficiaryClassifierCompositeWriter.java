@@ -8,15 +8,42 @@ import org.springframework.batch.item.ItemStream;
 import org.springframework.batch.item.ItemStreamException;
 import org.springframework.batch.item.ItemWriter;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes valid beneficiaries and invalid beneficiaries of a chunk to their own writers.
+ * <p>
+ * With concurrent lanes enabled, each writer gets a dedicated thread fed through a bounded
+ * queue, so the two outputs are written and flushed in parallel. {@link #write} and
+ * {@link #update} wait for both lanes, and a failure in either lane is rethrown so the chunk
+ * is rolled back.
+ */
 public class BeneficiaryClassifierCompositeWriter implements ItemWriter<Object>, ItemStream {
 
+    private static final int LANE_QUEUE_CAPACITY = 2;
+
     private final ItemWriter<Object> validBeneficiaryWriter;
     private final ItemWriter<Object> invalidBeneficiaryWriter;
+    private final boolean concurrentLanes;
+    private ExecutorService validLane;
+    private ExecutorService invalidLane;
     private boolean opened = false;
 
     public BeneficiaryClassifierCompositeWriter(ItemWriter<Object> validBeneficiaryWriter, ItemWriter<Object> invalidBeneficiaryWriter) {
+        this(validBeneficiaryWriter, invalidBeneficiaryWriter, false);
+    }
+
+    public BeneficiaryClassifierCompositeWriter(ItemWriter<Object> validBeneficiaryWriter, ItemWriter<Object> invalidBeneficiaryWriter,
+                                                boolean concurrentLanes) {
         this.validBeneficiaryWriter = validBeneficiaryWriter;
         this.invalidBeneficiaryWriter = invalidBeneficiaryWriter;
+        this.concurrentLanes = concurrentLanes;
     }
 
     @Override
@@ -34,6 +61,13 @@ public class BeneficiaryClassifierCompositeWriter implements ItemWriter<Object>,
             }
         }
 
+        if (validLane != null) {
+            awaitLanes(
+                    validItems.isEmpty() ? null : validLane.submit(lane(() -> validBeneficiaryWriter.write(validItems))),
+                    invalidItems.isEmpty() ? null : invalidLane.submit(lane(() -> invalidBeneficiaryWriter.write(invalidItems))));
+            return;
+        }
+
         if (!validItems.isEmpty()) {
             validBeneficiaryWriter.write(validItems);
         }
@@ -51,6 +85,10 @@ public class BeneficiaryClassifierCompositeWriter implements ItemWriter<Object>,
             if (invalidBeneficiaryWriter instanceof ItemStream) {
                 ((ItemStream) invalidBeneficiaryWriter).open(executionContext);
             }
+            if (concurrentLanes) {
+                validLane = newLane("valid-lane");
+                invalidLane = newLane("invalid-lane");
+            }
             opened = true;
         }
     }
@@ -58,6 +96,18 @@ public class BeneficiaryClassifierCompositeWriter implements ItemWriter<Object>,
     @Override
     public void update(ExecutionContext executionContext) throws ItemStreamException {
         if (opened) {
+            if (validLane != null) {
+                try {
+                    awaitLanes(
+                            validBeneficiaryWriter instanceof ItemStream stream ? validLane.submit(lane(() -> stream.update(executionContext))) : null,
+                            invalidBeneficiaryWriter instanceof ItemStream stream ? invalidLane.submit(lane(() -> stream.update(executionContext))) : null);
+                } catch (ItemStreamException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new ItemStreamException("Failed to update output writers", e);
+                }
+                return;
+            }
             if (validBeneficiaryWriter instanceof ItemStream) {
                 ((ItemStream) validBeneficiaryWriter).update(executionContext);
             }
@@ -84,7 +134,55 @@ public class BeneficiaryClassifierCompositeWriter implements ItemWriter<Object>,
             } catch (Exception e) {
                 // Log but don't propagate close exceptions
             }
+            if (validLane != null) {
+                validLane.shutdown();
+                invalidLane.shutdown();
+                validLane = null;
+                invalidLane = null;
+            }
             opened = false;
         }
     }
+
+    private interface LaneTask {
+        void run() throws Exception;
+    }
+
+    private static Callable<Void> lane(LaneTask task) {
+        return () -> {
+            task.run();
+            return null;
+        };
+    }
+
+    private static ExecutorService newLane(String name) {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(LANE_QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, name);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Waits for both lanes to finish, then rethrows the first failure, if any.
+     */
+    private static void awaitLanes(Future<?> validResult, Future<?> invalidResult) throws Exception {
+        Exception failure = null;
+        for (Future<?> result : new Future<?>[] {validResult, invalidResult}) {
+            if (result == null) {
+                continue;
+            }
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof Exception cause ? cause : e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
 }
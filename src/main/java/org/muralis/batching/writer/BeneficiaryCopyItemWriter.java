@@ -0,0 +1,201 @@
+package org.muralis.batching.writer;
+
+import org.muralis.batching.model.Address;
+import org.muralis.batching.model.Beneficiary;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes valid beneficiaries to the {@code beneficiary}, {@code dependent} and {@code address}
+ * tables. Every address row carries the person id and the position of its owner in the family,
+ * 0 for the primary and 1 onwards for the dependents. Null dependents are left out, as in the
+ * file formats.
+ * <p>
+ * A family is replaced as a whole when it is written again, by a rerun of the same file or by a
+ * later file: the beneficiary rows of the chunk's person ids are deleted first, which cascades
+ * to their dependent and address rows, and the rows of the chunk are then inserted. Within a
+ * chunk the last family with a given person id wins, as it would across chunks. {@code COPY}
+ * cannot update existing rows, so this is used rather than an upsert.
+ * <p>
+ * The rows of a chunk are streamed to PostgreSQL with one {@code COPY ... FROM STDIN} per table
+ * through the {@link CopyManager} of the connection. Any other database, such as an embedded
+ * stand-in, gets batched inserts instead. Either way the connection is the one bound to the
+ * chunk transaction, so the rows are committed or rolled back with the chunk; the writer must
+ * therefore be called on the thread that runs the chunk.
+ */
+public class BeneficiaryCopyItemWriter implements ItemStreamWriter<Beneficiary> {
+
+    private static final Table BENEFICIARY = new Table("beneficiary", "person_id", "first_name", "last_name");
+    private static final Table DEPENDENT = new Table("dependent", "person_id", "dependent_no", "first_name", "last_name");
+    private static final Table ADDRESS = new Table("address", "person_id", "dependent_no", "street", "city", "state", "zip");
+
+    private final DataSource dataSource;
+
+    public BeneficiaryCopyItemWriter(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public void write(Chunk<? extends Beneficiary> chunk) throws Exception {
+        Map<Long, Beneficiary> families = new LinkedHashMap<>();
+        for (Beneficiary beneficiary : chunk) {
+            families.remove(beneficiary.getPersonId());
+            families.put(beneficiary.getPersonId(), beneficiary);
+        }
+        Rows beneficiaries = new Rows(BENEFICIARY);
+        Rows dependents = new Rows(DEPENDENT);
+        Rows addresses = new Rows(ADDRESS);
+        for (Beneficiary beneficiary : families.values()) {
+            Long personId = beneficiary.getPersonId();
+            beneficiaries.add(personId, beneficiary.getFirstName(), beneficiary.getLastName());
+            addAddress(addresses, personId, 0, beneficiary.getAddress());
+            List<Beneficiary> family = beneficiary.getDependents();
+            if (family != null) {
+                int dependentNo = 0;
+                for (Beneficiary dependent : family) {
+                    if (dependent != null) {
+                        dependentNo++;
+                        dependents.add(personId, dependentNo, dependent.getFirstName(), dependent.getLastName());
+                        addAddress(addresses, personId, dependentNo, dependent.getAddress());
+                    }
+                }
+            }
+        }
+
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        try {
+            delete(connection, families.keySet());
+            for (Rows rows : new Rows[] {beneficiaries, dependents, addresses}) {
+                if (rows.isEmpty()) {
+                    continue;
+                }
+                if (connection.isWrapperFor(PGConnection.class)) {
+                    copy(connection.unwrap(PGConnection.class).getCopyAPI(), rows);
+                } else {
+                    insert(connection, rows);
+                }
+            }
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private static void addAddress(Rows addresses, Long personId, int dependentNo, Address address) {
+        if (address != null) {
+            addresses.add(personId, dependentNo, address.getStreet(), address.getCity(), address.getState(), address.getZip());
+        }
+    }
+
+    private static void delete(Connection connection, Collection<Long> personIds) throws SQLException {
+        if (personIds.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement("DELETE FROM " + BENEFICIARY.name
+                + " WHERE " + BENEFICIARY.columns[0] + " = ?")) {
+            for (Long personId : personIds) {
+                statement.setLong(1, personId);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private static void copy(CopyManager copyManager, Rows rows) throws SQLException, IOException {
+        copyManager.copyIn("COPY " + rows.table.name + " (" + String.join(", ", rows.table.columns)
+                + ") FROM STDIN", new StringReader(rows.toCopyText()));
+    }
+
+    private static void insert(Connection connection, Rows rows) throws SQLException {
+        String placeholders = String.join(", ", Collections.nCopies(rows.table.columns.length, "?"));
+        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO " + rows.table.name + " ("
+                + String.join(", ", rows.table.columns) + ") VALUES (" + placeholders + ")")) {
+            for (Object[] row : rows.values) {
+                for (int i = 0; i < row.length; i++) {
+                    if (row[i] == null) {
+                        statement.setNull(i + 1, Types.VARCHAR);
+                    } else {
+                        statement.setObject(i + 1, row[i]);
+                    }
+                }
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    private record Table(String name, String... columns) {
+    }
+
+    /**
+     * The rows of one table for a chunk.
+     */
+    private static final class Rows {
+
+        private final Table table;
+        private final List<Object[]> values = new ArrayList<>();
+
+        Rows(Table table) {
+            this.table = table;
+        }
+
+        void add(Object... row) {
+            values.add(row);
+        }
+
+        boolean isEmpty() {
+            return values.isEmpty();
+        }
+
+        /**
+         * @return the rows in the text format of {@code COPY}: tab separated columns, one row per
+         * line, {@code \N} for null and backslash escapes for the separators
+         */
+        String toCopyText() {
+            StringBuilder text = new StringBuilder(values.size() * 64);
+            for (Object[] row : values) {
+                for (int i = 0; i < row.length; i++) {
+                    if (i > 0) {
+                        text.append('\t');
+                    }
+                    if (row[i] == null) {
+                        text.append("\\N");
+                    } else {
+                        appendEscaped(text, row[i].toString());
+                    }
+                }
+                text.append('\n');
+            }
+            return text.toString();
+        }
+
+        private static void appendEscaped(StringBuilder text, String value) {
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '\\' -> text.append("\\\\");
+                    case '\t' -> text.append("\\t");
+                    case '\n' -> text.append("\\n");
+                    case '\r' -> text.append("\\r");
+                    default -> text.append(c);
+                }
+            }
+        }
+    }
+}
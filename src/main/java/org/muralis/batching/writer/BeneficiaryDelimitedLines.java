@@ -0,0 +1,62 @@
+package org.muralis.batching.writer;
+
+import org.muralis.batching.model.Address;
+import org.muralis.batching.model.Beneficiary;
+import org.muralis.batching.model.InvalidBeneficiary;
+import org.muralis.batching.reader.RecordSource;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes {@link Beneficiary} and {@link InvalidBeneficiary} families in the {@code ~PII~} layout
+ * of the customer file: one line for the primary followed by one per dependent, each holding
+ * the person id, first and last name, street, city, state and zip. The primary line of an
+ * invalid family carries its errors as further fields.
+ */
+public final class BeneficiaryDelimitedLines {
+
+    private BeneficiaryDelimitedLines() {
+    }
+
+    public static void beneficiary(DelimitedLineWriter out, Beneficiary beneficiary) throws IOException {
+        family(out, beneficiary, null);
+    }
+
+    public static void invalidBeneficiary(DelimitedLineWriter out, InvalidBeneficiary invalidBeneficiary) throws IOException {
+        if (invalidBeneficiary.getBeneficiary() != null) {
+            family(out, invalidBeneficiary.getBeneficiary(), invalidBeneficiary.getErrors());
+        }
+    }
+
+    private static void family(DelimitedLineWriter out, Beneficiary primary, List<String> errors) throws IOException {
+        person(out, primary);
+        if (errors != null) {
+            for (String error : errors) {
+                out.field(error);
+            }
+        }
+        out.endLine();
+        List<Beneficiary> dependents = primary.getDependents();
+        if (dependents != null) {
+            for (Beneficiary dependent : dependents) {
+                if (dependent != null) {
+                    person(out, dependent);
+                    out.endLine();
+                }
+            }
+        }
+    }
+
+    private static void person(DelimitedLineWriter out, Beneficiary beneficiary) throws IOException {
+        out.startLine(RecordSource.RECORD_PREFIX);
+        out.field(beneficiary.getPersonId());
+        out.field(beneficiary.getFirstName());
+        out.field(beneficiary.getLastName());
+        Address address = beneficiary.getAddress();
+        out.field(address == null ? null : address.getStreet());
+        out.field(address == null ? null : address.getCity());
+        out.field(address == null ? null : address.getState());
+        out.field(address == null ? null : address.getZip());
+    }
+}
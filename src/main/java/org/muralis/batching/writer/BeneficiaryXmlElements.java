@@ -0,0 +1,66 @@
+package org.muralis.batching.writer;
+
+import org.muralis.batching.model.Address;
+import org.muralis.batching.model.Beneficiary;
+import org.muralis.batching.model.InvalidBeneficiary;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes {@link Beneficiary} and {@link InvalidBeneficiary} elements with the layout JAXB
+ * derives from their annotations: fields in {@code propOrder}, null fields omitted, dependents
+ * inside a {@code dependents} wrapper and errors inside an {@code errors} wrapper.
+ */
+public final class BeneficiaryXmlElements {
+
+    private BeneficiaryXmlElements() {
+    }
+
+    public static void beneficiary(XmlByteWriter out, Beneficiary beneficiary) throws IOException {
+        out.startTag("beneficiary");
+        out.element("personId", beneficiary.getPersonId());
+        out.element("firstName", beneficiary.getFirstName());
+        out.element("lastName", beneficiary.getLastName());
+        address(out, beneficiary.getAddress());
+        List<Beneficiary> dependents = beneficiary.getDependents();
+        if (dependents != null) {
+            out.startTag("dependents");
+            for (Beneficiary dependent : dependents) {
+                if (dependent != null) {
+                    beneficiary(out, dependent);
+                }
+            }
+            out.endTag("dependents");
+        }
+        out.endTag("beneficiary");
+    }
+
+    public static void invalidBeneficiary(XmlByteWriter out, InvalidBeneficiary invalidBeneficiary) throws IOException {
+        out.startTag("invalid-beneficiary");
+        if (invalidBeneficiary.getBeneficiary() != null) {
+            beneficiary(out, invalidBeneficiary.getBeneficiary());
+        }
+        List<String> errors = invalidBeneficiary.getErrors();
+        if (errors != null) {
+            out.startTag("errors");
+            for (String error : errors) {
+                out.element("error", error);
+            }
+            out.endTag("errors");
+        }
+        out.endTag("invalid-beneficiary");
+    }
+
+    private static void address(XmlByteWriter out, Address address) throws IOException {
+        if (address == null) {
+            return;
+        }
+        out.startTag("address");
+        out.element("street", address.getStreet());
+        out.element("city", address.getCity());
+        out.element("state", address.getState());
+        out.element("zip", address.getZip());
+        out.endTag("address");
+    }
+}
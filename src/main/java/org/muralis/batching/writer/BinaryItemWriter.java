@@ -0,0 +1,66 @@
+package org.muralis.batching.writer;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes items as length-prefixed binary records after the {@link BeneficiaryBinaryRecords#MAGIC}
+ * bytes. Each item is encoded into a reused buffer first, so its length can be written ahead of
+ * it and a reader can skip records without decoding them.
+ *
+ * @param <T> the type of the items to write
+ */
+public class BinaryItemWriter<T> extends StreamingItemWriter<T> {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * Encodes the payload for a single item.
+     */
+    @FunctionalInterface
+    public interface RecordEncoder<T> {
+        void encode(DataOutput out, T item) throws IOException;
+    }
+
+    private final RecordEncoder<T> encoder;
+    private final ByteArrayOutputStream record = new ByteArrayOutputStream(1024);
+    private final DataOutputStream recordData = new DataOutputStream(record);
+
+    private DataOutputStream data;
+
+    public BinaryItemWriter(String filePath, RecordEncoder<T> encoder) {
+        super(filePath);
+        this.encoder = encoder;
+    }
+
+    @Override
+    protected void start(OutputStream out, boolean restarted) throws IOException {
+        data = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        if (!restarted) {
+            data.write(BeneficiaryBinaryRecords.MAGIC);
+        }
+    }
+
+    @Override
+    protected void writeItem(T item) throws IOException {
+        record.reset();
+        encoder.encode(recordData, item);
+        data.writeInt(record.size());
+        record.writeTo(data);
+    }
+
+    @Override
+    protected void flush() throws IOException {
+        data.flush();
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        data.flush();
+        data = null;
+    }
+}
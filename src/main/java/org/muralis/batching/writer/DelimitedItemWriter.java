@@ -0,0 +1,51 @@
+package org.muralis.batching.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes items as {@code '|'}-delimited lines, one or more per item, with no header or footer,
+ * so shards can simply be concatenated.
+ *
+ * @param <T> the type of the items to write
+ */
+public class DelimitedItemWriter<T> extends StreamingItemWriter<T> {
+
+    /**
+     * Writes the lines for a single item.
+     */
+    @FunctionalInterface
+    public interface LineWriter<T> {
+        void write(DelimitedLineWriter out, T item) throws IOException;
+    }
+
+    private final LineWriter<T> lineWriter;
+
+    private DelimitedLineWriter lines;
+
+    public DelimitedItemWriter(String filePath, LineWriter<T> lineWriter) {
+        super(filePath);
+        this.lineWriter = lineWriter;
+    }
+
+    @Override
+    protected void start(OutputStream out, boolean restarted) {
+        lines = new DelimitedLineWriter(out);
+    }
+
+    @Override
+    protected void writeItem(T item) throws IOException {
+        lineWriter.write(lines, item);
+    }
+
+    @Override
+    protected void flush() throws IOException {
+        lines.flush();
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        lines.flush();
+        lines = null;
+    }
+}
@@ -0,0 +1,91 @@
+package org.muralis.batching.writer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures an output writer: the items written and the time spent writing them, the time spent
+ * in {@link #update}, which is where the writers flush their buffers, and the bytes the output
+ * file grew by, if the output is a file. All meters are tagged with the name of the output.
+ *
+ * @param <T> the type of the items to write
+ */
+public class MeteredItemWriter<T> implements ItemStreamWriter<T> {
+
+    private final ItemStreamWriter<T> delegate;
+    private final Path path;
+    private final Counter itemsCounter;
+    private final Counter bytesCounter;
+    private final Timer writeTimer;
+    private final Timer flushTimer;
+
+    private long reportedSize;
+
+    /**
+     * @param filePath the output file, or {@code null} if the output is not a file
+     */
+    public MeteredItemWriter(ItemStreamWriter<T> delegate, String filePath, String output, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.path = filePath == null ? null : Paths.get(filePath);
+        this.itemsCounter = Counter.builder("writer.items").tag("output", output).register(meterRegistry);
+        this.bytesCounter = Counter.builder("writer.bytes").tag("output", output).baseUnit("bytes")
+                .register(meterRegistry);
+        this.writeTimer = Timer.builder("writer.write").tag("output", output).register(meterRegistry);
+        this.flushTimer = Timer.builder("writer.flush").tag("output", output).register(meterRegistry);
+    }
+
+    @Override
+    public void write(Chunk<? extends T> chunk) throws Exception {
+        long start = System.nanoTime();
+        delegate.write(chunk);
+        writeTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        itemsCounter.increment(chunk.size());
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        delegate.open(executionContext);
+        reportedSize = size();
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        long start = System.nanoTime();
+        delegate.update(executionContext);
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        reportSize();
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        delegate.close();
+        reportSize();
+    }
+
+    private void reportSize() {
+        long size = size();
+        if (size > reportedSize) {
+            bytesCounter.increment(size - reportedSize);
+            reportedSize = size;
+        }
+    }
+
+    private long size() {
+        try {
+            return path != null && Files.exists(path) ? Files.size(path) : 0;
+        } catch (IOException e) {
+            return reportedSize;
+        }
+    }
+}
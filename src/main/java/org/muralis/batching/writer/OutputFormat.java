@@ -0,0 +1,29 @@
+package org.muralis.batching.writer;
+
+import java.util.Locale;
+
+/**
+ * The format of an output file.
+ */
+public enum OutputFormat {
+
+    /** An XML document, as JAXB would marshal it. */
+    XML,
+
+    /** {@code ~PII~} lines delimited by {@code '|'}, as in the customer file. */
+    DELIMITED,
+
+    /** Length-prefixed binary records, see {@link BeneficiaryBinaryRecords}. */
+    BINARY;
+
+    /**
+     * @return the format with the given name, ignoring case
+     */
+    public static OutputFormat of(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown output format: " + name);
+        }
+    }
+}
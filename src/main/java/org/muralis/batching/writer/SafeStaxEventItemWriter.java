@@ -2,12 +2,11 @@ package org.muralis.batching.writer;
 
 import org.springframework.batch.item.Chunk;
 import org.springframework.batch.item.ExecutionContext;
-import org.springframework.batch.item.ItemStream;
 import org.springframework.batch.item.ItemStreamException;
-import org.springframework.batch.item.ItemWriter;
+import org.springframework.batch.item.ItemStreamWriter;
 import org.springframework.batch.item.xml.StaxEventItemWriter;
 
-public class SafeStaxEventItemWriter<T> implements ItemWriter<T>, ItemStream {
+public class SafeStaxEventItemWriter<T> implements ItemStreamWriter<T> {
 
     private final StaxEventItemWriter<T> delegate;
     private boolean opened = false;
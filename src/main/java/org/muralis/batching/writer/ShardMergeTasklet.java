@@ -0,0 +1,210 @@
+package org.muralis.batching.writer;
+
+import org.muralis.batching.io.Compression;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.batch.core.StepContribution;
+import org.springframework.batch.core.scope.context.ChunkContext;
+import org.springframework.batch.core.step.tasklet.Tasklet;
+import org.springframework.batch.repeat.RepeatStatus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Concatenates the shards written by the partitions of a worker step into the final output
+ * files. The leading bytes of the format are taken from the first shard, followed by the body
+ * of every shard in partition order and the trailing bytes of the last shard. For XML these are
+ * the XML declaration with the root start tag and the root end tag, for binary output the magic
+ * bytes, and delimited output has neither.
+ * <p>
+ * The shards of an output are the {@code .part-N} files next to it, so they are found on
+ * restart even when the partitions ran in an earlier job execution. Every output is merged
+ * before any shard is deleted, and shards are deleted in partition order, starting with
+ * {@code .part-0}. Shards that no longer start at {@code .part-0}, or an output left without
+ * shards, are therefore what remains of a merge that completed, and are not merged again.
+ * <p>
+ * Shards are always plain files; a compressed output file is compressed while merging.
+ */
+public class ShardMergeTasklet implements Tasklet {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardMergeTasklet.class);
+
+    private static final int SCAN_SIZE = 1024;
+    private static final String SHARD_SUFFIX = ".part-";
+
+    private final Map<String, OutputFormat> outputs;
+
+    /**
+     * @param outputs the format of each output file, by path
+     */
+    public ShardMergeTasklet(Map<String, OutputFormat> outputs) {
+        this.outputs = outputs;
+    }
+
+    /**
+     * @return the path of the shard written by the given partition for an output file
+     */
+    public static String shardPath(String outputPath, int partition) {
+        return outputPath + SHARD_SUFFIX + partition;
+    }
+
+    @Override
+    public RepeatStatus execute(StepContribution contribution, ChunkContext chunkContext) throws Exception {
+        Map<Path, List<Path>> shardsByOutput = new LinkedHashMap<>();
+        for (Map.Entry<String, OutputFormat> output : outputs.entrySet()) {
+            Path outputPath = Paths.get(output.getKey());
+            List<Path> shards = shards(outputPath);
+            shardsByOutput.put(outputPath, shards);
+            if (shards.isEmpty()) {
+                if (!Files.exists(outputPath)) {
+                    throw new IllegalStateException("No shards found for output " + outputPath);
+                }
+                log.info("Output {} has no shards left; it was merged before", outputPath);
+            } else if (!shards.get(0).equals(Paths.get(shardPath(output.getKey(), 0)))) {
+                log.info("Output {} only has the shards left by an interrupted cleanup; it was merged before",
+                        outputPath);
+            } else {
+                merge(shards, outputPath, output.getValue());
+            }
+        }
+
+        int partitions = shardsByOutput.values().stream().mapToInt(List::size).max().orElse(0);
+        for (int i = 0; i < partitions; i++) {
+            for (List<Path> shards : shardsByOutput.values()) {
+                if (i < shards.size()) {
+                    Files.delete(shards.get(i));
+                }
+            }
+        }
+        return RepeatStatus.FINISHED;
+    }
+
+    /**
+     * @return the shards of an output, in partition order
+     * @throws IOException if a shard is missing between two others
+     */
+    private static List<Path> shards(Path outputPath) throws IOException {
+        Path directory = outputPath.toAbsolutePath().getParent();
+        String prefix = outputPath.getFileName() + SHARD_SUFFIX;
+        TreeMap<Integer, Path> shards = new TreeMap<>();
+        if (Files.isDirectory(directory)) {
+            try (Stream<Path> files = Files.list(directory)) {
+                files.forEach(file -> {
+                    String name = file.getFileName().toString();
+                    if (name.startsWith(prefix) && name.length() > prefix.length()
+                            && name.substring(prefix.length()).chars().allMatch(Character::isDigit)) {
+                        shards.put(Integer.parseInt(name.substring(prefix.length())),
+                                outputPath.resolveSibling(name));
+                    }
+                });
+            }
+        }
+        if (!shards.isEmpty() && shards.lastKey() - shards.firstKey() + 1 != shards.size()) {
+            throw new IOException("Shards of " + outputPath + " are missing between partitions "
+                    + shards.firstKey() + " and " + shards.lastKey());
+        }
+        return new ArrayList<>(shards.values());
+    }
+
+    private void merge(List<Path> shards, Path target, OutputFormat format) throws IOException {
+        try (WritableByteChannel out = open(target)) {
+            for (int i = 0; i < shards.size(); i++) {
+                try (FileChannel in = FileChannel.open(shards.get(i), StandardOpenOption.READ)) {
+                    long size = in.size();
+                    long bodyStart = headerEnd(in, format);
+                    long bodyEnd = footerStart(in, format);
+                    if (i == 0) {
+                        transfer(in, 0, bodyStart, out);
+                    }
+                    transfer(in, bodyStart, bodyEnd, out);
+                    if (i == shards.size() - 1) {
+                        transfer(in, bodyEnd, size, out);
+                    }
+                }
+            }
+        }
+    }
+
+    private WritableByteChannel open(Path target) throws IOException {
+        Compression compression = Compression.of(target.getFileName().toString());
+        if (compression.isCompressed()) {
+            return Channels.newChannel(compression.compress(Files.newOutputStream(target)));
+        }
+        return FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * @return the offset just past the leading bytes of the format
+     */
+    private long headerEnd(FileChannel in, OutputFormat format) throws IOException {
+        return switch (format) {
+            case XML -> xmlHeaderEnd(in);
+            case BINARY -> BeneficiaryBinaryRecords.MAGIC.length;
+            case DELIMITED -> 0;
+        };
+    }
+
+    /**
+     * @return the offset of the trailing bytes of the format
+     */
+    private long footerStart(FileChannel in, OutputFormat format) throws IOException {
+        return format == OutputFormat.XML ? xmlFooterStart(in) : in.size();
+    }
+
+    /**
+     * @return the offset just past the root start tag, which follows the XML declaration
+     */
+    private long xmlHeaderEnd(FileChannel in) throws IOException {
+        String head = read(in, 0, (int) Math.min(SCAN_SIZE, in.size()));
+        int declarationEnd = head.startsWith("<?") ? head.indexOf("?>") + 2 : 0;
+        int rootEnd = head.indexOf('>', declarationEnd);
+        if (rootEnd < 0) {
+            throw new IOException("No root element found in shard");
+        }
+        return head.substring(0, rootEnd + 1).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * @return the offset of the root end tag
+     */
+    private long xmlFooterStart(FileChannel in) throws IOException {
+        long start = Math.max(0, in.size() - SCAN_SIZE);
+        String tail = read(in, start, (int) (in.size() - start));
+        int footer = tail.lastIndexOf("</");
+        if (footer < 0) {
+            throw new IOException("No root end tag found in shard");
+        }
+        return in.size() - tail.substring(footer).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private String read(FileChannel in, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining() && in.read(buffer, position + buffer.position()) > 0) {
+            // keep reading until the requested range is filled
+        }
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+    }
+
+    private void transfer(FileChannel in, long from, long to, WritableByteChannel out) throws IOException {
+        long position = from;
+        while (position < to) {
+            position += in.transferTo(position, to - position, out);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package org.muralis.batching.writer;
+
+import org.muralis.batching.io.Compression;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamSupport;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.util.ClassUtils;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Base class for writers that encode items straight into a file stream. It owns the file: the
+ * parent directories are created on open, a path ending in {@code .gz} or {@code .deflate} is
+ * compressed as it is written, buffered output is flushed on every {@link #update} and the
+ * stream is closed on {@link #close}. Subclasses only encode the leading bytes, the items and
+ * the trailing bytes of their format.
+ * <p>
+ * The length of the file after every flush is saved in the {@link ExecutionContext}, so a
+ * restarted step truncates the file to the end of the last committed chunk and appends from
+ * there, without writing the leading bytes again. Writers sharing a step must have distinct
+ * names. A compressed stream cannot be cut at an arbitrary byte, so compressed output is not
+ * restartable and a restart fails rather than lose the records already written.
+ *
+ * @param <T> the type of the items to write
+ */
+public abstract class StreamingItemWriter<T> extends ItemStreamSupport implements ItemStreamWriter<T> {
+
+    private static final String POSITION_KEY = "position";
+
+    private final Path path;
+    private final Compression compression;
+
+    private OutputStream outputStream;
+    private CountingOutputStream fileStream;
+
+    protected StreamingItemWriter(String filePath) {
+        this.path = Paths.get(filePath);
+        this.compression = Compression.of(path.getFileName().toString());
+        setName(ClassUtils.getShortName(getClass()));
+    }
+
+    /**
+     * Prepares the encoder for a newly opened stream and, unless the stream continues the output
+     * of an earlier run, writes any leading bytes.
+     */
+    protected abstract void start(OutputStream out, boolean restarted) throws IOException;
+
+    protected abstract void writeItem(T item) throws IOException;
+
+    /**
+     * Pushes buffered bytes to the stream passed to {@link #start}.
+     */
+    protected abstract void flush() throws IOException;
+
+    /**
+     * Writes any trailing bytes and flushes, before the stream is closed.
+     */
+    protected abstract void finish() throws IOException;
+
+    @Override
+    public void write(Chunk<? extends T> chunk) throws Exception {
+        for (T item : chunk) {
+            writeItem(item);
+        }
+    }
+
+    @Override
+    public void open(ExecutionContext executionContext) throws ItemStreamException {
+        if (outputStream != null) {
+            return;
+        }
+        String positionKey = getExecutionContextKey(POSITION_KEY);
+        try {
+            if (executionContext.containsKey(positionKey)) {
+                if (compression.isCompressed()) {
+                    throw new ItemStreamException("Cannot restart compressed output " + path
+                            + "; the file must be loaded again from the start by a new job instance");
+                }
+                fileStream = reopen(executionContext.getLong(positionKey));
+                outputStream = fileStream;
+                start(outputStream, true);
+            } else {
+                Files.createDirectories(path.toAbsolutePath().getParent());
+                fileStream = new CountingOutputStream(Files.newOutputStream(path), 0);
+                outputStream = compression.compress(fileStream);
+                start(outputStream, false);
+            }
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to open " + path, e);
+        }
+    }
+
+    /**
+     * @return a stream appending to the file after it is cut back to {@code position}
+     */
+    private CountingOutputStream reopen(long position) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() < position) {
+                throw new ItemStreamException("Cannot restart " + path + ": it is shorter than the "
+                        + position + " bytes written by the last committed chunk");
+            }
+            channel.truncate(position);
+            channel.position(position);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        return new CountingOutputStream(Channels.newOutputStream(channel), position);
+    }
+
+    @Override
+    public void update(ExecutionContext executionContext) throws ItemStreamException {
+        if (outputStream != null) {
+            try {
+                flush();
+            } catch (IOException e) {
+                throw new ItemStreamException("Failed to flush " + path, e);
+            }
+            executionContext.putLong(getExecutionContextKey(POSITION_KEY), fileStream.count);
+        }
+    }
+
+    @Override
+    public void close() throws ItemStreamException {
+        if (outputStream == null) {
+            return;
+        }
+        try (OutputStream out = outputStream) {
+            finish();
+        } catch (IOException e) {
+            throw new ItemStreamException("Failed to close " + path, e);
+        } finally {
+            outputStream = null;
+            fileStream = null;
+        }
+    }
+
+    /**
+     * Counts the bytes passed to the file, starting from the length it was opened at.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out, long count) {
+            super(out);
+            this.count = count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.muralis.batching.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes items as an XML document straight to an escaped UTF-8 byte stream, without JAXB or
+ * StAX events. The output matches what {@code StaxEventItemWriter} produces with a
+ * {@code Jaxb2Marshaller}, so it can be used in place of {@link SafeStaxEventItemWriter}.
+ * <p>
+ * A path ending in {@code .gz} or {@code .deflate} is compressed as it is written.
+ *
+ * @param <T> the type of the items to write
+ */
+public class StreamingXmlItemWriter<T> extends StreamingItemWriter<T> {
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>";
+
+    /**
+     * Writes the element for a single item.
+     */
+    @FunctionalInterface
+    public interface ElementWriter<T> {
+        void write(XmlByteWriter out, T item) throws IOException;
+    }
+
+    private final String rootTagName;
+    private final ElementWriter<T> elementWriter;
+
+    private XmlByteWriter xml;
+
+    public StreamingXmlItemWriter(String filePath, String rootTagName, ElementWriter<T> elementWriter) {
+        super(filePath);
+        this.rootTagName = rootTagName;
+        this.elementWriter = elementWriter;
+    }
+
+    @Override
+    protected void start(OutputStream out, boolean restarted) throws IOException {
+        xml = new XmlByteWriter(out);
+        if (!restarted) {
+            xml.raw(XML_DECLARATION);
+            xml.startTag(rootTagName);
+        }
+    }
+
+    @Override
+    protected void writeItem(T item) throws IOException {
+        elementWriter.write(xml, item);
+    }
+
+    @Override
+    protected void flush() throws IOException {
+        xml.flush();
+    }
+
+    @Override
+    protected void finish() throws IOException {
+        xml.endTag(rootTagName);
+        xml.flush();
+        xml = null;
+    }
+}
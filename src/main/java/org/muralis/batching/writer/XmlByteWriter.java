@@ -0,0 +1,135 @@
+package org.muralis.batching.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes XML as UTF-8 bytes into a large buffer in front of an output stream. Text is escaped
+ * exactly like the StAX writer behind JAXB does it: only {@code &}, {@code <} and {@code >} are
+ * replaced, and every element is written as a start and end tag pair, even when it is empty.
+ */
+public class XmlByteWriter {
+
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final byte[] AMP = "&amp;".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LT = "&lt;".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GT = "&gt;".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int count;
+    private long written;
+
+    public XmlByteWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    public void startTag(String name) throws IOException {
+        ensure(name.length() + 2);
+        buffer[count++] = '<';
+        ascii(name);
+        buffer[count++] = '>';
+    }
+
+    public void endTag(String name) throws IOException {
+        ensure(name.length() + 3);
+        buffer[count++] = '<';
+        buffer[count++] = '/';
+        ascii(name);
+        buffer[count++] = '>';
+    }
+
+    /**
+     * Writes a text-only element, or nothing if {@code text} is {@code null}, as JAXB does for
+     * a null field.
+     */
+    public void element(String name, Object text) throws IOException {
+        if (text == null) {
+            return;
+        }
+        startTag(name);
+        text(text.toString());
+        endTag(name);
+    }
+
+    public void text(String text) throws IOException {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                if (c == '&') {
+                    raw(AMP);
+                } else if (c == '<') {
+                    raw(LT);
+                } else if (c == '>') {
+                    raw(GT);
+                } else {
+                    ensure(1);
+                    buffer[count++] = (byte) c;
+                }
+            } else {
+                // Hand the rest of the string to the JDK encoder, which also takes care of
+                // surrogate pairs.
+                int end = i + 1;
+                while (end < length && text.charAt(end) >= 0x80) {
+                    end++;
+                }
+                raw(text.substring(i, end).getBytes(StandardCharsets.UTF_8));
+                i = end - 1;
+            }
+        }
+    }
+
+    /**
+     * Writes markup that needs no escaping, such as an XML declaration.
+     */
+    public void raw(String markup) throws IOException {
+        raw(markup.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void raw(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length) {
+            flushBuffer();
+            out.write(bytes);
+            written += bytes.length;
+            return;
+        }
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    private void ascii(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            buffer[count++] = (byte) name.charAt(i);
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (count + bytes > buffer.length) {
+            flushBuffer();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buffer, 0, count);
+        written += count;
+        count = 0;
+    }
+
+    /**
+     * Pushes the buffered bytes to the underlying stream and flushes it.
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * @return the number of bytes written so far, including those still buffered
+     */
+    public long position() {
+        return written + count;
+    }
+}
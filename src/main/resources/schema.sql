@@ -1,20 +1,11 @@
 --  https://github.com/spring-projects/spring-batch/tree/main/spring-batch-core/src/main/resources/org/springframework/batch/core
 
-DROP TABLE  IF EXISTS BATCH_STEP_EXECUTION_CONTEXT;
-DROP TABLE  IF EXISTS BATCH_JOB_EXECUTION_CONTEXT;
-DROP TABLE  IF EXISTS BATCH_STEP_EXECUTION;
-DROP TABLE  IF EXISTS BATCH_JOB_EXECUTION_PARAMS;
-DROP TABLE  IF EXISTS BATCH_JOB_EXECUTION;
-DROP TABLE  IF EXISTS BATCH_JOB_INSTANCE;
-DROP TABLE  IF EXISTS customers;
-
-DROP SEQUENCE  IF EXISTS BATCH_STEP_EXECUTION_SEQ;
-DROP SEQUENCE  IF EXISTS BATCH_JOB_EXECUTION_SEQ;
-DROP SEQUENCE  IF EXISTS BATCH_JOB_SEQ;
+-- Tables are only created when missing, so that job executions survive a restart of the
+-- application and a failed execution can be resumed.
 
 -- Autogenerated: do not edit this file
 
-CREATE TABLE BATCH_JOB_INSTANCE (
+CREATE TABLE IF NOT EXISTS BATCH_JOB_INSTANCE (
 	JOB_INSTANCE_ID BIGINT  NOT NULL PRIMARY KEY,
 	VERSION BIGINT,
 	JOB_NAME VARCHAR(100) NOT NULL,
@@ -22,7 +13,7 @@ CREATE TABLE BATCH_JOB_INSTANCE (
 	constraint JOB_INST_UN unique (JOB_NAME, JOB_KEY)
 ) ;
 
-CREATE TABLE BATCH_JOB_EXECUTION (
+CREATE TABLE IF NOT EXISTS BATCH_JOB_EXECUTION (
 	JOB_EXECUTION_ID BIGINT  NOT NULL PRIMARY KEY,
 	VERSION BIGINT,
 	JOB_INSTANCE_ID BIGINT NOT NULL,
@@ -37,7 +28,7 @@ CREATE TABLE BATCH_JOB_EXECUTION (
 	references BATCH_JOB_INSTANCE(JOB_INSTANCE_ID)
 ) ;
 
-CREATE TABLE BATCH_JOB_EXECUTION_PARAMS (
+CREATE TABLE IF NOT EXISTS BATCH_JOB_EXECUTION_PARAMS (
 	JOB_EXECUTION_ID BIGINT NOT NULL,
 	PARAMETER_NAME VARCHAR(100) NOT NULL,
 	PARAMETER_TYPE VARCHAR(100) NOT NULL,
@@ -47,7 +38,7 @@ CREATE TABLE BATCH_JOB_EXECUTION_PARAMS (
 	references BATCH_JOB_EXECUTION(JOB_EXECUTION_ID)
 ) ;
 
-CREATE TABLE BATCH_STEP_EXECUTION (
+CREATE TABLE IF NOT EXISTS BATCH_STEP_EXECUTION (
 	STEP_EXECUTION_ID BIGINT  NOT NULL PRIMARY KEY,
 	VERSION BIGINT NOT NULL,
 	STEP_NAME VARCHAR(100) NOT NULL,
@@ -71,7 +62,7 @@ CREATE TABLE BATCH_STEP_EXECUTION (
 	references BATCH_JOB_EXECUTION(JOB_EXECUTION_ID)
 ) ;
 
-CREATE TABLE BATCH_STEP_EXECUTION_CONTEXT (
+CREATE TABLE IF NOT EXISTS BATCH_STEP_EXECUTION_CONTEXT (
 	STEP_EXECUTION_ID BIGINT NOT NULL PRIMARY KEY,
 	SHORT_CONTEXT VARCHAR(2500) NOT NULL,
 	SERIALIZED_CONTEXT TEXT,
@@ -79,7 +70,7 @@ CREATE TABLE BATCH_STEP_EXECUTION_CONTEXT (
 	references BATCH_STEP_EXECUTION(STEP_EXECUTION_ID)
 ) ;
 
-CREATE TABLE BATCH_JOB_EXECUTION_CONTEXT (
+CREATE TABLE IF NOT EXISTS BATCH_JOB_EXECUTION_CONTEXT (
 	JOB_EXECUTION_ID BIGINT NOT NULL PRIMARY KEY,
 	SHORT_CONTEXT VARCHAR(2500) NOT NULL,
 	SERIALIZED_CONTEXT TEXT,
@@ -87,6 +78,37 @@ CREATE TABLE BATCH_JOB_EXECUTION_CONTEXT (
 	references BATCH_JOB_EXECUTION(JOB_EXECUTION_ID)
 ) ;
 
+-- A family is keyed by the person id of its primary and is replaced as a whole when it is
+-- loaded again: deleting the beneficiary row cascades to its dependents and addresses.
+
+CREATE TABLE IF NOT EXISTS beneficiary (
+	PERSON_ID BIGINT NOT NULL PRIMARY KEY,
+	FIRST_NAME TEXT,
+	LAST_NAME TEXT
+) ;
+
+CREATE TABLE IF NOT EXISTS dependent (
+	PERSON_ID BIGINT NOT NULL,
+	DEPENDENT_NO INT NOT NULL,
+	FIRST_NAME TEXT,
+	LAST_NAME TEXT,
+	constraint DEPENDENT_PK primary key (PERSON_ID, DEPENDENT_NO),
+	constraint DEPENDENT_BENEFICIARY_FK foreign key (PERSON_ID)
+	references beneficiary(PERSON_ID) on delete cascade
+) ;
+
+CREATE TABLE IF NOT EXISTS address (
+	PERSON_ID BIGINT NOT NULL,
+	DEPENDENT_NO INT NOT NULL,
+	STREET TEXT,
+	CITY TEXT,
+	STATE VARCHAR(2),
+	ZIP VARCHAR(5),
+	constraint ADDRESS_PK primary key (PERSON_ID, DEPENDENT_NO),
+	constraint ADDRESS_BENEFICIARY_FK foreign key (PERSON_ID)
+	references beneficiary(PERSON_ID) on delete cascade
+) ;
+
 -- CREATE TABLE customers (
 -- 	customer_id SERIAL PRIMARY KEY,
 --     name VARCHAR(50),
@@ -97,6 +119,6 @@ CREATE TABLE BATCH_JOB_EXECUTION_CONTEXT (
 --     stock_price DECIMAL(10,2)
 -- );
 
-CREATE SEQUENCE BATCH_STEP_EXECUTION_SEQ MAXVALUE 9223372036854775807 NO CYCLE;
-CREATE SEQUENCE BATCH_JOB_EXECUTION_SEQ MAXVALUE 9223372036854775807 NO CYCLE;
-CREATE SEQUENCE BATCH_JOB_SEQ MAXVALUE 9223372036854775807 NO CYCLE;
\ No newline at end of file
+CREATE SEQUENCE IF NOT EXISTS BATCH_STEP_EXECUTION_SEQ MAXVALUE 9223372036854775807 NO CYCLE;
+CREATE SEQUENCE IF NOT EXISTS BATCH_JOB_EXECUTION_SEQ MAXVALUE 9223372036854775807 NO CYCLE;
+CREATE SEQUENCE IF NOT EXISTS BATCH_JOB_SEQ MAXVALUE 9223372036854775807 NO CYCLE;
\ No newline at end of file
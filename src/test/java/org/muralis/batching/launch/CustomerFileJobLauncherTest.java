@@ -0,0 +1,117 @@
+package org.muralis.batching.launch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.Job;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobInstance;
+import org.springframework.batch.core.JobParameters;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.launch.JobLauncher;
+import org.springframework.batch.core.repository.JobRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomerFileJobLauncherTest {
+
+	@TempDir
+	Path directory;
+
+	private final JobLauncher jobLauncher = mock(JobLauncher.class);
+	private final JobExplorer jobExplorer = mock(JobExplorer.class);
+	private final JobRepository jobRepository = mock(JobRepository.class);
+	private final Job job = mock(Job.class);
+
+	@Test
+	void restartsAFailedExecutionOfTheSameFile() throws Exception {
+		Path file = Files.writeString(directory.resolve("customers.dat"), "~HDR\n~FTR|0\n");
+		CustomerFileJobLauncher launcher = launcher(file, "customers.xml");
+		JobParameters failed = parameters(file, "customers.xml", Files.size(file), Files.getLastModifiedTime(file).toMillis(), 1);
+		history(failed);
+		when(jobLauncher.run(eq(job), any())).thenReturn(execution(failed, BatchStatus.COMPLETED));
+
+		launcher.run();
+
+		verify(jobLauncher).run(job, failed);
+	}
+
+	@Test
+	void startsANewInstanceWhenTheFileChangedSinceTheFailure() throws Exception {
+		Path file = Files.writeString(directory.resolve("customers.dat"), "~HDR\n~FTR|0\n");
+		CustomerFileJobLauncher launcher = launcher(file, "customers.xml");
+		long modified = Files.getLastModifiedTime(file).toMillis();
+		JobParameters failed = parameters(file, "customers.xml", Files.size(file) + 1, modified, 1);
+		history(failed);
+		JobParameters fresh = parameters(file, "customers.xml", Files.size(file), modified, 2);
+		when(jobLauncher.run(eq(job), any())).thenReturn(execution(fresh, BatchStatus.COMPLETED));
+
+		launcher.run();
+
+		verify(jobLauncher).run(job, fresh);
+	}
+
+	@Test
+	void startsANewInstanceInsteadOfRestartingCompressedOutput() throws Exception {
+		Path file = Files.writeString(directory.resolve("customers.dat"), "~HDR\n~FTR|0\n");
+		CustomerFileJobLauncher launcher = launcher(file, "customers.xml.gz");
+		long size = Files.size(file);
+		long modified = Files.getLastModifiedTime(file).toMillis();
+		JobExecution failed = history(parameters(file, "customers.xml.gz", size, modified, 1));
+		JobParameters fresh = parameters(file, "customers.xml.gz", size, modified, 2);
+		when(jobLauncher.run(eq(job), any())).thenReturn(execution(fresh, BatchStatus.COMPLETED));
+
+		launcher.run();
+
+		assertEquals(BatchStatus.ABANDONED, failed.getStatus());
+		verify(jobRepository).update(failed);
+		verify(jobLauncher).run(job, fresh);
+	}
+
+	private CustomerFileJobLauncher launcher(Path file, String outputName) {
+		when(job.getName()).thenReturn("customerJob");
+		return new CustomerFileJobLauncher(jobLauncher, jobExplorer, jobRepository, job,
+				file.toUri().toString(), "", output(outputName), output("invalid.xml"), output("quarantine.txt"),
+				directory.resolve("index.bin"), 1);
+	}
+
+	private JobExecution history(JobParameters parameters) {
+		JobInstance instance = new JobInstance(1L, "customerJob");
+		JobExecution execution = execution(parameters, BatchStatus.FAILED);
+		when(jobExplorer.getJobInstances("customerJob", 0, 1000)).thenReturn(List.of(instance));
+		when(jobExplorer.getLastJobExecution(instance)).thenReturn(execution);
+		return execution;
+	}
+
+	private JobParameters parameters(Path file, String outputName, long size, long modified, long runId) {
+		return new JobParametersBuilder()
+				.addString(CustomerFileJobLauncher.INPUT_FILE_PARAMETER, file.toUri().toString())
+				.addLong(CustomerFileJobLauncher.INPUT_FILE_SIZE_PARAMETER, size)
+				.addLong(CustomerFileJobLauncher.INPUT_FILE_MODIFIED_PARAMETER, modified)
+				.addString(CustomerFileJobLauncher.OUTPUT_FILE_PARAMETER, output(outputName))
+				.addString(CustomerFileJobLauncher.INVALID_OUTPUT_FILE_PARAMETER, output("invalid.xml"))
+				.addString(CustomerFileJobLauncher.QUARANTINE_FILE_PARAMETER, output("quarantine.txt"))
+				.addLong(CustomerFileJobLauncher.RUN_ID_PARAMETER, runId)
+				.toJobParameters();
+	}
+
+	private static JobExecution execution(JobParameters parameters, BatchStatus status) {
+		JobExecution execution = new JobExecution(1L, parameters);
+		execution.setStatus(status);
+		return execution;
+	}
+
+	private String output(String name) {
+		return directory.resolve(name).toString();
+	}
+}
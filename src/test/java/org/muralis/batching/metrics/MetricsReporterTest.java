@@ -0,0 +1,44 @@
+package org.muralis.batching.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MetricsReporterTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	@DisabledOnOs(OS.WINDOWS)
+	void replacesTheJsonFileWithReadablePermissions() throws Exception {
+		SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+		meterRegistry.counter("customer.reader.families", "step", "step1").increment(3);
+		Path jsonFile = directory.resolve("metrics.json");
+		MetricsReporter reporter = new MetricsReporter(meterRegistry, Duration.ZERO, jsonFile);
+
+		reporter.report();
+
+		assertTrue(Files.readString(jsonFile).contains(
+				"{\"name\": \"customer.reader.families\", \"type\": \"counter\", \"tags\": {\"step\": \"step1\"}, \"count\": 3}"));
+		assertEquals("rw-r--r--", PosixFilePermissions.toString(Files.getPosixFilePermissions(jsonFile)));
+
+		Files.setPosixFilePermissions(jsonFile, PosixFilePermissions.fromString("rw-rw----"));
+		reporter.close();
+
+		assertEquals("rw-rw----", PosixFilePermissions.toString(Files.getPosixFilePermissions(jsonFile)));
+		try (var files = Files.list(directory)) {
+			assertEquals(1, files.count());
+		}
+	}
+}
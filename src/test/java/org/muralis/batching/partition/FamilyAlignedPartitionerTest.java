@@ -0,0 +1,153 @@
+package org.muralis.batching.partition;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.muralis.batching.model.Beneficiary;
+import org.muralis.batching.model.MalformedLine;
+import org.muralis.batching.reader.CustomerFileReader;
+import org.muralis.batching.reader.TrailerCheck;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.core.io.FileSystemResource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FamilyAlignedPartitionerTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void splitsBetweenFamiliesSoThatThePartitionsReadTheWholeFile() throws Exception {
+		Path file = customerFile();
+		byte[] bytes = Files.readAllBytes(file);
+		List<Beneficiary> expected = read(file, 0, Long.MAX_VALUE);
+
+		for (int gridSize = 1; gridSize <= 40; gridSize++) {
+			Map<String, ExecutionContext> partitions = new FamilyAlignedPartitioner(new FileSystemResource(file))
+					.partition(gridSize);
+
+			assertTrue(partitions.size() <= gridSize);
+			List<Beneficiary> families = new ArrayList<>();
+			long expectedStart = 0;
+			int index = 0;
+			for (ExecutionContext partition : partitions.values()) {
+				long start = partition.getLong(FamilyAlignedPartitioner.START_OFFSET_KEY);
+				long end = partition.getLong(FamilyAlignedPartitioner.END_OFFSET_KEY);
+				assertEquals(index++, partition.getInt(FamilyAlignedPartitioner.PARTITION_KEY));
+				assertEquals(expectedStart, start);
+				assertTrue(end > start);
+				if (start > 0) {
+					assertEquals('\n', bytes[(int) start - 1]);
+					assertNotEquals(personId(bytes, (int) start, true), personId(bytes, (int) start, false),
+							"partition " + index + " of " + gridSize + " starts within a family");
+				}
+				families.addAll(read(file, start, end));
+				expectedStart = end;
+			}
+			assertEquals(bytes.length, expectedStart);
+			assertEquals(expected, families, "grid of " + gridSize);
+		}
+	}
+
+	@Test
+	void keepsAFamilyTogetherAcrossTheLinesTheReaderRejects() throws Exception {
+		Path file = Files.write(directory.resolve("customers.dat"), List.of(
+				"~HDR|20250726|CLIENT|BENEFICIARIES",
+				"~PII~1|KATE|WAUGH|84 Paterson St|Huntsville|AL|35801",
+				"~PII~X|BAD|WAUGH|84 Paterson St|Huntsville|AL|35801",
+				"~PII~1|DANNY|WAUGH|84 Paterson St|Huntsville|AL|35801",
+				"~PII~2|only|three",
+				"~PII~1|ANN|WAUGH|84 Paterson St|Huntsville|AL|35801",
+				"~PII~\"unterminated|B|1 St|C|AL|35801",
+				"~PII~1|JOHN|WAUGH|84 Paterson St|Huntsville|AL|35801",
+				"~PII~2|LEE|SMITH|1 Main St|Boston|MA|02101",
+				"~PII~\"2\"|MAY|SMITH|1 Main St|Boston|MA|02101",
+				"~PII~3|BOB|JONES|2 Main St|Boston|MA|02101",
+				"~FTR|10"));
+		List<Beneficiary> expected = read(file, 0, Long.MAX_VALUE);
+		assertEquals(List.of(1L, 2L, 3L), expected.stream().map(Beneficiary::getPersonId).toList());
+		assertEquals(3, expected.get(0).getDependents().size());
+		assertEquals(1, expected.get(1).getDependents().size());
+
+		for (int gridSize = 1; gridSize <= 12; gridSize++) {
+			List<Beneficiary> families = new ArrayList<>();
+			for (ExecutionContext partition : new FamilyAlignedPartitioner(new FileSystemResource(file))
+					.partition(gridSize).values()) {
+				families.addAll(read(file, partition.getLong(FamilyAlignedPartitioner.START_OFFSET_KEY),
+						partition.getLong(FamilyAlignedPartitioner.END_OFFSET_KEY)));
+			}
+			assertEquals(expected, families, "grid of " + gridSize);
+		}
+	}
+
+	@Test
+	void readsACompressedFileAsASinglePartition() throws Exception {
+		Path file = Files.write(directory.resolve("customers.dat.gz"), new byte[0]);
+
+		Map<String, ExecutionContext> partitions = new FamilyAlignedPartitioner(new FileSystemResource(file)).partition(4);
+
+		assertEquals(1, partitions.size());
+		assertEquals(Long.MAX_VALUE, partitions.get("partition0").getLong(FamilyAlignedPartitioner.END_OFFSET_KEY));
+	}
+
+	private static List<Beneficiary> read(Path file, long start, long end) throws Exception {
+		CustomerFileReader reader = new CustomerFileReader(new FileSystemResource(file), true, start, end);
+		reader.setTrailerCheck(TrailerCheck.OFF);
+		ItemStreamWriter<MalformedLine> quarantine = chunk -> {
+		};
+		reader.setQuarantine(quarantine, Long.MAX_VALUE);
+		List<Beneficiary> families = new ArrayList<>();
+		reader.open(new ExecutionContext());
+		try {
+			Beneficiary family;
+			while ((family = reader.read()) != null) {
+				families.add(family);
+			}
+		} finally {
+			reader.close();
+		}
+		return families;
+	}
+
+	/**
+	 * @return the person id of the nearest record line starting before, or at or after, an offset
+	 */
+	private static String personId(byte[] bytes, int offset, boolean before) {
+		String text = new String(bytes, StandardCharsets.UTF_8);
+		int lineStart = before ? text.lastIndexOf("\n~PII~", offset - 2) + 1 : text.indexOf("~PII~", offset);
+		return lineStart < 0 ? null : text.substring(lineStart + 5, text.indexOf('|', lineStart));
+	}
+
+	/**
+	 * @return a file of families of one to six members, with lines of varied lengths and a few
+	 * lines that are not records between them
+	 */
+	private Path customerFile() throws Exception {
+		Random random = new Random(7);
+		List<String> lines = new ArrayList<>();
+		lines.add("~HDR|20250726|CLIENT|BENEFICIARIES");
+		int records = 0;
+		for (int personId = 1; personId <= 60; personId++) {
+			for (int member = random.nextInt(6); member >= 0; member--) {
+				lines.add("~PII~" + personId + "|" + "N".repeat(1 + random.nextInt(40)) + "|WAUGH|1 Main St|Boston|MA|02101");
+				records++;
+			}
+			if (random.nextInt(10) == 0) {
+				lines.add("# a comment between families");
+			}
+		}
+		lines.add("~FTR|" + records);
+		return Files.write(directory.resolve("customers.dat"), lines);
+	}
+}
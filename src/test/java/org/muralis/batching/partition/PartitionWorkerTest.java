@@ -0,0 +1,131 @@
+package org.muralis.batching.partition;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.JobParametersBuilder;
+import org.springframework.batch.core.Step;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.core.explore.JobExplorer;
+import org.springframework.batch.core.explore.support.JobExplorerFactoryBean;
+import org.springframework.batch.core.repository.JobRepository;
+import org.springframework.batch.core.repository.support.JobRepositoryFactoryBean;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs several workers, as separate processes would, against one job repository in an embedded
+ * H2 database.
+ */
+class PartitionWorkerTest {
+
+	private static final String JOB_NAME = "customer-file-load";
+	private static final int PARTITIONS = 24;
+
+	private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+			.generateUniqueName(true)
+			.setType(EmbeddedDatabaseType.H2)
+			.addScript("schema.sql")
+			.build();
+
+	@AfterEach
+	void shutdown() {
+		database.shutdown();
+	}
+
+	@Test
+	void runsEveryPartitionOnceWhenWorkersRaceToClaimIt() throws Exception {
+		JdbcTransactionManager transactionManager = new JdbcTransactionManager(database);
+		JobRepository jobRepository = jobRepository(transactionManager);
+		JobExecution jobExecution = jobRepository.createJobExecution(JOB_NAME,
+				new JobParametersBuilder().addLong("run.id", 1L).toJobParameters());
+		jobExecution.setStatus(BatchStatus.STARTED);
+		jobExecution.setStartTime(LocalDateTime.now());
+		jobRepository.update(jobExecution);
+		List<StepExecution> partitions = new ArrayList<>();
+		for (int i = 0; i < PARTITIONS; i++) {
+			StepExecution partition = jobExecution.createStepExecution("worker:partition" + i);
+			partition.setStatus(BatchStatus.STARTING);
+			partitions.add(partition);
+		}
+		jobRepository.addAll(partitions);
+
+		Map<String, AtomicInteger> runs = new ConcurrentHashMap<>();
+		ExecutorService processes = Executors.newFixedThreadPool(3);
+		try {
+			List<Future<Integer>> counts = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				PartitionWorker worker = new PartitionWorker(jobExplorer(transactionManager), jobRepository(transactionManager),
+						JOB_NAME, step(jobRepository, runs), 4, Duration.ofMillis(5), Duration.ofMillis(500));
+				counts.add(processes.submit(worker::run));
+			}
+			int total = 0;
+			for (Future<Integer> count : counts) {
+				total += count.get();
+			}
+			assertEquals(PARTITIONS, total);
+		} finally {
+			processes.shutdownNow();
+		}
+
+		assertEquals(PARTITIONS, runs.size());
+		runs.forEach((name, count) -> assertEquals(1, count.get(), name));
+		JobExplorer jobExplorer = jobExplorer(transactionManager);
+		for (StepExecution partition : jobExplorer.getJobExecution(jobExecution.getId()).getStepExecutions()) {
+			assertEquals(BatchStatus.COMPLETED, partition.getStatus(), partition.getStepName());
+		}
+	}
+
+	/**
+	 * @return a worker step that counts the partitions it runs and completes them
+	 */
+	private static Step step(JobRepository jobRepository, Map<String, AtomicInteger> runs) {
+		return new Step() {
+
+			@Override
+			public String getName() {
+				return "worker";
+			}
+
+			@Override
+			public void execute(StepExecution stepExecution) {
+				runs.computeIfAbsent(stepExecution.getStepName(), name -> new AtomicInteger()).incrementAndGet();
+				stepExecution.setStatus(BatchStatus.COMPLETED);
+				stepExecution.setEndTime(LocalDateTime.now());
+				jobRepository.update(stepExecution);
+			}
+		};
+	}
+
+	private JobRepository jobRepository(JdbcTransactionManager transactionManager) throws Exception {
+		JobRepositoryFactoryBean factory = new JobRepositoryFactoryBean();
+		factory.setDataSource(database);
+		factory.setTransactionManager(transactionManager);
+		factory.afterPropertiesSet();
+		return factory.getObject();
+	}
+
+	private JobExplorer jobExplorer(JdbcTransactionManager transactionManager) throws Exception {
+		JobExplorerFactoryBean factory = new JobExplorerFactoryBean();
+		factory.setDataSource(database);
+		factory.setTransactionManager(transactionManager);
+		factory.afterPropertiesSet();
+		return factory.getObject();
+	}
+}
@@ -0,0 +1,53 @@
+package org.muralis.batching.partition;
+
+import org.junit.jupiter.api.Test;
+import org.muralis.batching.reader.TrailerCheck;
+import org.springframework.batch.core.BatchStatus;
+import org.springframework.batch.core.JobExecution;
+import org.springframework.batch.core.StepExecution;
+import org.springframework.batch.item.ItemStreamException;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TrailerVerifyingAggregatorTest {
+
+	private final TrailerVerifyingAggregator aggregator = new TrailerVerifyingAggregator(TrailerCheck.FAIL,
+			"record.count", "malformed.count", "trailer", "trailer.verified");
+
+	@Test
+	void countsTheQuarantinedLinesOfEveryPartition() {
+		JobExecution jobExecution = new JobExecution(1L);
+		StepExecution manager = jobExecution.createStepExecution("manager");
+		StepExecution first = partition(jobExecution, 0, 10, 1, null);
+		StepExecution last = partition(jobExecution, 1, 8, 1, "~FTR|20");
+
+		aggregator.aggregate(manager, List.of(first, last));
+
+		assertEquals(true, manager.getExecutionContext().get("trailer.verified"));
+	}
+
+	@Test
+	void failsATrailerThatDoesNotMatch() {
+		JobExecution jobExecution = new JobExecution(1L);
+		StepExecution manager = jobExecution.createStepExecution("manager");
+		StepExecution first = partition(jobExecution, 0, 10, 1, null);
+		StepExecution last = partition(jobExecution, 1, 8, 0, "~FTR|20");
+
+		assertThrows(ItemStreamException.class, () -> aggregator.aggregate(manager, List.of(first, last)));
+	}
+
+	private static StepExecution partition(JobExecution jobExecution, int partition, long records, long malformed,
+										   String trailer) {
+		StepExecution execution = jobExecution.createStepExecution("worker:partition" + partition);
+		execution.setStatus(BatchStatus.COMPLETED);
+		execution.getExecutionContext().putLong("record.count", records);
+		execution.getExecutionContext().putLong("malformed.count", malformed);
+		if (trailer != null) {
+			execution.getExecutionContext().putString("trailer", trailer);
+		}
+		return execution;
+	}
+}
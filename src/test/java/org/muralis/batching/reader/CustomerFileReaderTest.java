@@ -0,0 +1,210 @@
+package org.muralis.batching.reader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.muralis.batching.incremental.FamilyHashIndex;
+import org.muralis.batching.model.Beneficiary;
+import org.muralis.batching.model.MalformedLine;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+import org.springframework.batch.item.ItemStreamWriter;
+import org.springframework.batch.item.file.FlatFileParseException;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CustomerFileReaderTest {
+
+	private static final String HEADER = "~HDR|20250726|CLIENT|BENEFICIARIES";
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void countsQuarantinedLinesAgainstTheTrailer() throws Exception {
+		Path file = write("customers.dat", HEADER,
+				"~PII~1|KATE|WAUGH|84 Paterson St|Huntsville|AL|35801",
+				"~PII~ABC|DANNY|WAUGH|84 Paterson St|Huntsville|AL|35801",
+				"~PII~2|ANN|LEE|1 Main St|Boston|MA|02101",
+				"~FTR|3");
+		List<MalformedLine> quarantined = new ArrayList<>();
+		CustomerFileReader reader = reader(file, quarantined, 100);
+
+		List<Beneficiary> families = readAll(reader, new ExecutionContext());
+
+		assertEquals(2, families.size());
+		assertEquals(1, quarantined.size());
+		assertEquals(3, quarantined.get(0).getLineNumber());
+		assertEquals("Person id 'ABC' is not a number", quarantined.get(0).getReason());
+	}
+
+	@Test
+	void stillFailsATrailerThatDoesNotCountTheQuarantinedLines() throws Exception {
+		Path file = write("customers.dat", HEADER,
+				"~PII~1|KATE|WAUGH|84 Paterson St|Huntsville|AL|35801",
+				"~PII~ABC|DANNY|WAUGH|84 Paterson St|Huntsville|AL|35801",
+				"~FTR|1");
+		CustomerFileReader reader = reader(file, new ArrayList<>(), 100);
+
+		assertThrows(ItemStreamException.class, () -> readAll(reader, new ExecutionContext()));
+	}
+
+	@Test
+	void failsOnceTheMalformedLineBudgetIsSpent() throws Exception {
+		Path file = write("customers.dat", HEADER,
+				"~PII~1|KATE|WAUGH|84 Paterson St|Huntsville|AL|35801",
+				"~PII~X|A|B|1 St|C|AL|35801",
+				"~PII~2|only|three",
+				"~PII~3|\"\"unterminated|B|1 St|C|AL|35801",
+				"~FTR|4");
+		List<MalformedLine> quarantined = new ArrayList<>();
+		CustomerFileReader reader = reader(file, quarantined, 2);
+
+		assertThrows(FlatFileParseException.class,
+				() -> readAll(reader, new ExecutionContext()));
+		assertEquals(3, quarantined.size());
+	}
+
+	@Test
+	void hashesTheSameFamiliesWhicheverSourceReadsThem() throws Exception {
+		Path file = write("customers.dat", HEADER,
+				"~PII~1|KATE|WAUGH|84 Paterson St|Huntsville|AL|35801|extra",
+				"~PII~1|DANNY|WAUGH|84 Paterson St|Huntsville|AL|35801",
+				"~PII~2|ANN|LEE|1 Main St|Boston|MA|02101|extra|more",
+				"~FTR|3");
+		FamilyHashIndex lineIndex = new FamilyHashIndex(directory.resolve("line.idx"));
+		CustomerFileReader lineReader = reader(file, new ArrayList<>(), 0);
+		lineReader.setFamilyHashIndex(lineIndex);
+		assertEquals(2, readAll(lineReader, new ExecutionContext()).size());
+		lineIndex.save();
+
+		FamilyHashIndex mappedIndex = new FamilyHashIndex(lineIndex.getPath());
+		mappedIndex.load();
+		CustomerFileReader mappedReader = new CustomerFileReader(new FileSystemResource(file), true);
+		mappedReader.setFamilyHashIndex(mappedIndex);
+
+		assertEquals(List.of(), readAll(mappedReader, new ExecutionContext()));
+	}
+
+	@Test
+	void resumesAfterTheLastFamilyCommitted() throws Exception {
+		List<String> lines = new ArrayList<>(List.of(HEADER));
+		for (int personId = 1; personId <= 20; personId++) {
+			lines.add("~PII~" + personId + "|KATE|WAUGH|84 Paterson St|Huntsville|AL|35801");
+			lines.add("~PII~" + personId + "|DANNY|WAUGH|84 Paterson St|Huntsville|AL|35801");
+		}
+		lines.add("~FTR|40");
+		Path file = write("customers.dat", lines.toArray(String[]::new));
+
+		for (boolean memoryMapped : new boolean[]{false, true}) {
+			ExecutionContext executionContext = new ExecutionContext();
+			CustomerFileReader failed = new CustomerFileReader(new FileSystemResource(file), memoryMapped);
+			failed.setTrailerCheck(TrailerCheck.FAIL);
+			failed.open(executionContext);
+			List<Beneficiary> families = new ArrayList<>();
+			for (int i = 0; i < 7; i++) {
+				families.add(failed.read());
+			}
+			failed.update(executionContext);
+			// Read after the last commit, so read again on restart
+			failed.read();
+			failed.close();
+
+			CustomerFileReader restarted = new CustomerFileReader(new FileSystemResource(file), memoryMapped);
+			restarted.setTrailerCheck(TrailerCheck.FAIL);
+			families.addAll(readAll(restarted, executionContext));
+
+			assertEquals(20, families.size());
+			for (int i = 0; i < families.size(); i++) {
+				assertEquals(i + 1, families.get(i).getPersonId());
+				assertEquals(1, families.get(i).getDependents().size());
+			}
+			assertEquals(40L, executionContext.getLong(CustomerFileReader.executionContextKey(CustomerFileReader.RECORD_COUNT_KEY)));
+		}
+	}
+
+	@Test
+	void keepsTheHashesOfTheFamiliesReadBeforeARestart() throws Exception {
+		Path file = directory.resolve("customers.dat");
+		Path indexFile = directory.resolve("customers.idx");
+		writeFamilies(file, "KATE");
+		FamilyHashIndex first = new FamilyHashIndex(indexFile);
+		assertEquals(20, readAll(incrementalReader(file, first), new ExecutionContext()).size());
+		assertEquals(20, first.save());
+
+		// The next file changes every family, and its load fails after seven of them
+		writeFamilies(file, "KATHERINE");
+		ExecutionContext executionContext = new ExecutionContext();
+		FamilyHashIndex failedRun = new FamilyHashIndex(indexFile);
+		failedRun.load();
+		CustomerFileReader failed = incrementalReader(file, failedRun);
+		failed.open(executionContext);
+		for (int i = 0; i < 7; i++) {
+			failed.read();
+		}
+		failed.update(executionContext);
+		failed.close();
+
+		FamilyHashIndex restartedRun = new FamilyHashIndex(indexFile);
+		restartedRun.load();
+		assertEquals(13, readAll(incrementalReader(file, restartedRun), executionContext).size());
+		assertEquals(20, restartedRun.save());
+
+		// The families read before the restart kept their previous hash, so they are read again
+		FamilyHashIndex nextRun = new FamilyHashIndex(indexFile);
+		nextRun.load();
+		assertEquals(20, nextRun.size());
+		List<Beneficiary> changed = readAll(incrementalReader(file, nextRun), new ExecutionContext());
+		assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), changed.stream().map(Beneficiary::getPersonId).toList());
+	}
+
+	private static CustomerFileReader incrementalReader(Path file, FamilyHashIndex index) {
+		CustomerFileReader reader = new CustomerFileReader(new FileSystemResource(file));
+		reader.setTrailerCheck(TrailerCheck.FAIL);
+		reader.setFamilyHashIndex(index);
+		return reader;
+	}
+
+	private static void writeFamilies(Path file, String firstName) throws IOException {
+		List<String> lines = new ArrayList<>(List.of(HEADER));
+		for (int personId = 1; personId <= 20; personId++) {
+			lines.add("~PII~" + personId + "|" + firstName + "|WAUGH|84 Paterson St|Huntsville|AL|35801");
+		}
+		lines.add("~FTR|20");
+		Files.write(file, lines);
+	}
+
+	static CustomerFileReader reader(Path file, List<MalformedLine> quarantined, long maxMalformedLines) {
+		CustomerFileReader reader = new CustomerFileReader(new FileSystemResource(file));
+		reader.setTrailerCheck(TrailerCheck.FAIL);
+		ItemStreamWriter<MalformedLine> quarantine = chunk -> quarantined.addAll(chunk.getItems());
+		reader.setQuarantine(quarantine, maxMalformedLines);
+		return reader;
+	}
+
+	static List<Beneficiary> readAll(CustomerFileReader reader, ExecutionContext executionContext) throws Exception {
+		List<Beneficiary> families = new ArrayList<>();
+		reader.open(executionContext);
+		try {
+			Beneficiary family;
+			while ((family = reader.read()) != null) {
+				families.add(family);
+			}
+			reader.update(executionContext);
+		} finally {
+			reader.close();
+		}
+		return families;
+	}
+
+	private Path write(String name, String... lines) throws IOException {
+		return Files.write(directory.resolve(name), List.of(lines));
+	}
+}
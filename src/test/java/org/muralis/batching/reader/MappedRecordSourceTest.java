@@ -0,0 +1,86 @@
+package org.muralis.batching.reader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MappedRecordSourceTest {
+
+	private static final String FILE = String.join("\n",
+			"~HDR|20250726|CLIENT|BENEFICIARIES",
+			"~PII~1|KATE|WAUGH|84 Paterson St|Huntsville|AL|35801",
+			"~PII~1|  DANNY  |WAUGH||Huntsville|AL|35801|extra|fields",
+			"~PII~2|\"LEE, ANN\"|\"O|NEIL\"|\"1 \"\"Main\"\" St\"|Boston|MA|02101|\"quoted extra\"",
+			"~PII~3|ZOË|MÜLLER|Straße 1|Köln|NW|50667\r",
+			"~PII~4|only|three",
+			"a line that is not a record",
+			"~PII~5|\"unterminated|B|1 St|C|AL|35801",
+			"~PII~6|" + "LONG".repeat(40) + "|WAUGH|1 St|C|AL|35801",
+			"~PII~",
+			"",
+			"~PII~7|LAST|LINE|1 St|C|AL|35801",
+			"~FTR|9");
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void readsTheSameRecordsAsTheLineSourceWhereverTheWindowsEnd() throws Exception {
+		Path file = Files.writeString(directory.resolve("customers.dat"), FILE, StandardCharsets.UTF_8);
+		List<String> expected = readAll(new LineRecordSource(Files.newInputStream(file)));
+
+		for (int windowSize = 1; windowSize <= 200; windowSize++) {
+			List<String> actual = readAll(new MappedRecordSource(file, Long.MAX_VALUE, windowSize));
+			assertEquals(expected, actual, "window of " + windowSize + " bytes");
+		}
+		assertEquals(expected, readAll(new MappedRecordSource(file)));
+	}
+
+	@Test
+	void stopsAtTheEndOffsetLikeTheLineSource() throws Exception {
+		Path file = Files.writeString(directory.resolve("customers.dat"), FILE + "\n", StandardCharsets.UTF_8);
+		byte[] bytes = Files.readAllBytes(file);
+		for (int end = 0; end <= bytes.length; end++) {
+			if (end > 0 && bytes[end - 1] != '\n') {
+				continue;
+			}
+			assertEquals(readAll(new LineRecordSource(Files.newInputStream(file), end)),
+					readAll(new MappedRecordSource(file, end, 16)), "end offset " + end);
+		}
+	}
+
+	/**
+	 * @return every record, or rejection, with the first seven fields, the position, line count,
+	 * line, header and trailer after it
+	 */
+	private static List<String> readAll(RecordSource source) throws IOException {
+		List<String> results = new ArrayList<>();
+		try (source) {
+			while (true) {
+				String result;
+				try {
+					String[] record = source.next();
+					if (record == null) {
+						break;
+					}
+					result = Arrays.toString(Arrays.copyOf(record, Math.min(record.length, 7)));
+				} catch (MalformedRecordException e) {
+					result = "malformed";
+				}
+				results.add(result + " @" + source.position() + " #" + source.lines() + " " + source.line());
+			}
+			results.add("end @" + source.position() + " #" + source.lines() + " skipped " + source.skippedLines()
+					+ " " + source.header() + " " + source.trailer());
+		}
+		return results;
+	}
+}
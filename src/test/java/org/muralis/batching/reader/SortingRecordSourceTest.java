@@ -0,0 +1,104 @@
+package org.muralis.batching.reader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.muralis.batching.model.Beneficiary;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SortingRecordSourceTest {
+
+	private static final int FAMILIES = 300;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void groupsFamiliesMergedInSeveralPasses() throws Exception {
+		Path file = shuffledFile();
+		Path runs = Files.createDirectory(directory.resolve("runs"));
+		List<String[]> records = new ArrayList<>();
+
+		// A buffer of one byte spills every record as its own run, far more than one merge takes
+		try (RecordSource source = new SortingRecordSource(new LineRecordSource(Files.newInputStream(file)), 1, runs)) {
+			String[] record;
+			while ((record = source.next()) != null) {
+				records.add(record);
+			}
+			assertEquals(Files.size(file), source.position());
+		}
+
+		assertTrue(records.size() > SortingRecordSource.MAX_FAN_IN * 2);
+		for (int i = 1; i < records.size(); i++) {
+			String[] previous = records.get(i - 1);
+			String[] current = records.get(i);
+			assertTrue(Long.parseLong(previous[0]) <= Long.parseLong(current[0]));
+			if (previous[0].equals(current[0])) {
+				assertTrue(previous[1].compareTo(current[1]) < 0, "members keep their order in the file");
+			}
+		}
+		try (var files = Files.list(runs)) {
+			assertEquals(0, files.count());
+		}
+	}
+
+	@Test
+	void resumesAtTheSavedPositionOnceSortedAgain() throws Exception {
+		Path file = shuffledFile();
+		List<Beneficiary> expected = CustomerFileReaderTest.readAll(sortingReader(file), new ExecutionContext());
+
+		ExecutionContext executionContext = new ExecutionContext();
+		CustomerFileReader reader = sortingReader(file);
+		List<Beneficiary> families = new ArrayList<>();
+		reader.open(executionContext);
+		for (int i = 0; i < FAMILIES / 3; i++) {
+			families.add(reader.read());
+		}
+		reader.update(executionContext);
+		reader.close();
+		families.addAll(CustomerFileReaderTest.readAll(sortingReader(file), executionContext));
+
+		assertEquals(FAMILIES, expected.size());
+		assertEquals(expected, families);
+	}
+
+	private CustomerFileReader sortingReader(Path file) {
+		CustomerFileReader reader = CustomerFileReaderTest.reader(file, new ArrayList<>(), 0);
+		reader.setSortBuffer(1, directory.resolve("runs"));
+		return reader;
+	}
+
+	/**
+	 * @return a file of families of one to three members, whose records are interleaved at random
+	 * but keep their order within each family
+	 */
+	private Path shuffledFile() throws IOException {
+		Random random = new Random(42);
+		List<Integer> order = new ArrayList<>();
+		for (int family = 0; family < FAMILIES; family++) {
+			for (int member = random.nextInt(3); member >= 0; member--) {
+				order.add(family);
+			}
+		}
+		Collections.shuffle(order, random);
+		int[] members = new int[FAMILIES];
+		List<String> lines = new ArrayList<>();
+		lines.add("~HDR|20250726|CLIENT|BENEFICIARIES");
+		for (int family : order) {
+			int personId = 1000 + (family * 7919) % FAMILIES;
+			lines.add("~PII~" + personId + "|M" + members[family]++ + "|FAMILY" + personId + "|1 Main St|Boston|MA|02101");
+		}
+		lines.add("~FTR|" + order.size());
+		return Files.write(directory.resolve("customers.dat"), lines);
+	}
+}
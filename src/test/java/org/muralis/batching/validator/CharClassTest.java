@@ -0,0 +1,36 @@
+package org.muralis.batching.validator;
+
+import io.vavr.collection.CharSeq;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CharClassTest {
+
+	private static final List<String> DEFINITIONS = List.of("[a-zA-Z0-9. ]", "[a-zA-Z ]", "[A-Z]", "[0-9]");
+
+	private static final List<String> VALUES = List.of("", "84 Paterson St", "D$ANNY", "OH!", "43&215",
+			"o'Brien-Smith", "zz$$aa!!$", "JOSÉ", "Ærø éÉ", "emoji 😀 x", "tab\there", "[^\\]");
+
+	@Test
+	void matchesTheRegexReplaceAllRendering() {
+		for (String definition : DEFINITIONS) {
+			CharClass charClass = CharClass.of(definition);
+			for (String value : VALUES) {
+				CharSeq remaining = CharSeq.of(value).replaceAll(definition, "");
+				assertEquals(remaining.isEmpty(), charClass.matchesAll(value), definition + " " + value);
+				assertEquals(remaining.distinct().sorted().toString(), charClass.invalidCharacters(value), definition + " " + value);
+			}
+		}
+	}
+
+	@Test
+	void rejectsUnsupportedDefinitions() {
+		assertThrows(IllegalArgumentException.class, () -> CharClass.of("a-z"));
+		assertThrows(IllegalArgumentException.class, () -> CharClass.of("[^a-z]"));
+		assertThrows(IllegalArgumentException.class, () -> CharClass.of("[z-a]"));
+	}
+}
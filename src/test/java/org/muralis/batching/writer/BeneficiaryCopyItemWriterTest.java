@@ -0,0 +1,99 @@
+package org.muralis.batching.writer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.muralis.batching.model.Address;
+import org.muralis.batching.model.Beneficiary;
+import org.springframework.batch.item.Chunk;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Runs against an embedded H2 database, so it covers the batched inserts used for any database
+ * other than PostgreSQL.
+ */
+class BeneficiaryCopyItemWriterTest {
+
+	private final EmbeddedDatabase database = new EmbeddedDatabaseBuilder()
+			.generateUniqueName(true)
+			.setType(EmbeddedDatabaseType.H2)
+			.addScript("schema.sql")
+			.build();
+	private final JdbcTemplate jdbc = new JdbcTemplate(database);
+	private final BeneficiaryCopyItemWriter writer = new BeneficiaryCopyItemWriter(database);
+
+	@AfterEach
+	void shutdown() {
+		database.shutdown();
+	}
+
+	@Test
+	void writesEveryMemberOfAFamilyWithItsAddress() throws Exception {
+		Beneficiary family = family(1, "KATE", person("DANNY", address("84 Paterson St")), person("ANN", null));
+
+		writer.write(Chunk.of(family, family(2, "JOHN")));
+
+		assertEquals(List.of(Map.of("PERSON_ID", 1L, "FIRST_NAME", "KATE"), Map.of("PERSON_ID", 2L, "FIRST_NAME", "JOHN")),
+				jdbc.queryForList("SELECT person_id, first_name FROM beneficiary ORDER BY person_id"));
+		assertEquals(List.of(Map.of("DEPENDENT_NO", 1, "FIRST_NAME", "DANNY"), Map.of("DEPENDENT_NO", 2, "FIRST_NAME", "ANN")),
+				jdbc.queryForList("SELECT dependent_no, first_name FROM dependent WHERE person_id = 1 ORDER BY dependent_no"));
+		assertEquals(List.of(0, 1),
+				jdbc.queryForList("SELECT dependent_no FROM address WHERE person_id = 1 ORDER BY dependent_no", Integer.class));
+		assertNull(jdbc.queryForObject("SELECT zip FROM address WHERE person_id = 1 AND dependent_no = 1", String.class));
+	}
+
+	@Test
+	void replacesAFamilyWrittenAgain() throws Exception {
+		writer.write(Chunk.of(family(1, "KATE", person("DANNY", null), person("ANN", null)), family(2, "JOHN")));
+
+		writer.write(Chunk.of(family(1, "KATHERINE", person("DANIEL", null))));
+
+		assertEquals(List.of("KATHERINE", "JOHN"),
+				jdbc.queryForList("SELECT first_name FROM beneficiary ORDER BY person_id", String.class));
+		assertEquals(List.of("DANIEL"), jdbc.queryForList("SELECT first_name FROM dependent WHERE person_id = 1", String.class));
+		assertEquals(1, jdbc.queryForObject("SELECT count(*) FROM address WHERE person_id = 1", Integer.class));
+	}
+
+	@Test
+	void keepsTheLastFamilyWithTheSamePersonIdInAChunk() throws Exception {
+		writer.write(Chunk.of(family(1, "KATE", person("DANNY", null)), family(1, "KATHERINE")));
+
+		assertEquals(List.of("KATHERINE"), jdbc.queryForList("SELECT first_name FROM beneficiary", String.class));
+		assertEquals(0, jdbc.queryForObject("SELECT count(*) FROM dependent", Integer.class));
+	}
+
+	@Test
+	void numbersDependentsWithoutTheNullOnes() throws Exception {
+		Beneficiary family = family(1, "KATE");
+		family.setDependents(Arrays.asList(null, person("DANNY", null), null, person("ANN", null)));
+
+		writer.write(Chunk.of(family));
+
+		assertEquals(List.of(Map.of("DEPENDENT_NO", 1, "FIRST_NAME", "DANNY"), Map.of("DEPENDENT_NO", 2, "FIRST_NAME", "ANN")),
+				jdbc.queryForList("SELECT dependent_no, first_name FROM dependent ORDER BY dependent_no"));
+	}
+
+	private static Beneficiary family(long personId, String firstName, Beneficiary... dependents) {
+		Beneficiary primary = person(firstName, address("1 Main St"));
+		primary.setPersonId(personId);
+		primary.setDependents(List.of(dependents));
+		return primary;
+	}
+
+	private static Beneficiary person(String firstName, Address address) {
+		return Beneficiary.builder().firstName(firstName).lastName("WAUGH").address(address).build();
+	}
+
+	private static Address address(String street) {
+		return Address.builder().street(street).city("Huntsville").state("AL").build();
+	}
+}
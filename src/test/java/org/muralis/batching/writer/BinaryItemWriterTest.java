@@ -0,0 +1,99 @@
+package org.muralis.batching.writer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.muralis.batching.model.Address;
+import org.muralis.batching.model.Beneficiary;
+import org.muralis.batching.model.InvalidBeneficiary;
+import org.muralis.batching.reader.BinaryBeneficiaryReader;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BinaryItemWriterTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void readsBackTheFamiliesItWrote() throws Exception {
+		for (String name : new String[]{"valid.bin", "valid.bin.gz", "valid.bin.deflate"}) {
+			Path file = directory.resolve(name);
+			List<Beneficiary> families = List.of(
+					family(1L, "KATE", new Address("84 Paterson St", "Huntsville", "AL", "35801"),
+							person("DANNY", null), person("ZOË", new Address("Straße 1", "Köln", null, ""))),
+					family(2L, "L".repeat(300), null),
+					Beneficiary.builder().build());
+
+			write(new BinaryItemWriter<>(file.toString(), BeneficiaryBinaryRecords::beneficiary), families);
+
+			assertEquals(families, readAll(file), name);
+		}
+	}
+
+	@Test
+	void readsBackTheInvalidFamiliesItWrote() throws Exception {
+		Path file = directory.resolve("invalid.bin");
+		List<String> errors = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			errors.add("error " + i);
+		}
+		List<InvalidBeneficiary> families = List.of(
+				new InvalidBeneficiary(family(1L, "", null, person(null, null)), List.of("Person id is missing")),
+				new InvalidBeneficiary(null, errors),
+				new InvalidBeneficiary(family(null, "ANN", null), null));
+
+		write(new BinaryItemWriter<>(file.toString(), BeneficiaryBinaryRecords::invalidBeneficiary), families);
+
+		assertEquals(families, readAll(file));
+	}
+
+	@Test
+	void leavesOutNullDependents() throws Exception {
+		Path file = directory.resolve("valid.bin");
+		Beneficiary family = family(1L, "KATE", null, person("DANNY", null));
+		family.setDependents(Arrays.asList(null, person("DANNY", null), null));
+
+		write(new BinaryItemWriter<>(file.toString(), BeneficiaryBinaryRecords::beneficiary), List.of(family));
+
+		assertEquals(List.of(family(1L, "KATE", null, person("DANNY", null))), readAll(file));
+	}
+
+	private static <T> void write(BinaryItemWriter<T> writer, List<T> items) throws Exception {
+		ExecutionContext executionContext = new ExecutionContext();
+		writer.open(executionContext);
+		try {
+			writer.write(new Chunk<>(items.subList(0, 1)));
+			writer.update(executionContext);
+			writer.write(new Chunk<>(items.subList(1, items.size())));
+			writer.update(executionContext);
+		} finally {
+			writer.close();
+		}
+	}
+
+	private static List<Object> readAll(Path file) throws Exception {
+		List<Object> items = new ArrayList<>();
+		try (BinaryBeneficiaryReader reader = BinaryBeneficiaryReader.open(file)) {
+			Object item;
+			while ((item = reader.read()) != null) {
+				items.add(item);
+			}
+		}
+		return items;
+	}
+
+	private static Beneficiary family(Long personId, String firstName, Address address, Beneficiary... dependents) {
+		return new Beneficiary(personId, firstName, "WAUGH", address, List.of(dependents));
+	}
+
+	private static Beneficiary person(String firstName, Address address) {
+		return Beneficiary.builder().personId(1L).firstName(firstName).address(address).build();
+	}
+}
@@ -0,0 +1,100 @@
+package org.muralis.batching.writer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardMergeTaskletTest {
+
+	private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\"?><beneficiaries>";
+	private static final String XML_FOOTER = "</beneficiaries>";
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void mergesTheShardsFoundNextToEveryOutputInPartitionOrder() throws Exception {
+		Path xml = directory.resolve("customers.xml");
+		Path delimited = directory.resolve("quarantine.txt");
+		for (int partition : new int[]{0, 1, 2, 10}) {
+			shard(xml, partition, XML_HEADER + "<b>" + partition + "</b>" + XML_FOOTER);
+			shard(delimited, partition, partition + "\n");
+		}
+		// Shards 3 to 9 of a grid of 11 are missing: only contiguous partitions are merged
+		assertThrows(IOException.class, () -> tasklet(xml, OutputFormat.XML).execute(null, null));
+
+		Files.delete(shardPath(xml, 10));
+		Files.delete(shardPath(delimited, 10));
+		tasklet(xml, OutputFormat.XML, delimited, OutputFormat.DELIMITED).execute(null, null);
+
+		assertEquals(XML_HEADER + "<b>0</b><b>1</b><b>2</b>" + XML_FOOTER, Files.readString(xml));
+		assertEquals("0\n1\n2\n", Files.readString(delimited));
+		try (var files = Files.list(directory)) {
+			assertEquals(2, files.count());
+		}
+	}
+
+	@Test
+	void keepsEveryShardWhenAnOutputFailsToMerge() throws Exception {
+		Path delimited = directory.resolve("quarantine.txt");
+		Path xml = directory.resolve("customers.xml");
+		shard(delimited, 0, "0\n");
+		shard(delimited, 1, "1\n");
+		shard(xml, 0, "no root element");
+		shard(xml, 1, "no root element");
+
+		ShardMergeTasklet tasklet = tasklet(delimited, OutputFormat.DELIMITED, xml, OutputFormat.XML);
+		assertThrows(IOException.class, () -> tasklet.execute(null, null));
+
+		assertTrue(Files.exists(shardPath(delimited, 0)));
+		assertTrue(Files.exists(shardPath(delimited, 1)));
+	}
+
+	@Test
+	void doesNotMergeAgainWhatACompletedMergeLeft() throws Exception {
+		Path delimited = directory.resolve("quarantine.txt");
+		Files.writeString(delimited, "0\n1\n");
+		shard(delimited, 1, "1\n");
+
+		tasklet(delimited, OutputFormat.DELIMITED).execute(null, null);
+
+		assertEquals("0\n1\n", Files.readString(delimited));
+		assertFalse(Files.exists(shardPath(delimited, 1)));
+		tasklet(delimited, OutputFormat.DELIMITED).execute(null, null);
+		assertEquals("0\n1\n", Files.readString(delimited));
+	}
+
+	@Test
+	void neverWritesAnOutputWithoutShards() {
+		Path delimited = directory.resolve("quarantine.txt");
+
+		assertThrows(IllegalStateException.class, () -> tasklet(delimited, OutputFormat.DELIMITED).execute(null, null));
+		assertFalse(Files.exists(delimited));
+	}
+
+	private static ShardMergeTasklet tasklet(Object... pathsAndFormats) {
+		Map<String, OutputFormat> outputs = new LinkedHashMap<>();
+		for (int i = 0; i < pathsAndFormats.length; i += 2) {
+			outputs.put(pathsAndFormats[i].toString(), (OutputFormat) pathsAndFormats[i + 1]);
+		}
+		return new ShardMergeTasklet(outputs);
+	}
+
+	private static void shard(Path output, int partition, String content) throws IOException {
+		Files.writeString(shardPath(output, partition), content);
+	}
+
+	private static Path shardPath(Path output, int partition) {
+		return Path.of(ShardMergeTasklet.shardPath(output.toString(), partition));
+	}
+}
@@ -0,0 +1,90 @@
+package org.muralis.batching.writer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.muralis.batching.model.Beneficiary;
+import org.springframework.batch.item.Chunk;
+import org.springframework.batch.item.ExecutionContext;
+import org.springframework.batch.item.ItemStreamException;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StreamingItemWriterTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void restartsAtTheEndOfTheLastCommittedChunk() throws Exception {
+		Path file = directory.resolve("customers.xml");
+		ExecutionContext executionContext = new ExecutionContext();
+		StreamingXmlItemWriter<Beneficiary> failed = writer(file);
+		failed.open(executionContext);
+		failed.write(Chunk.of(person(1L)));
+		failed.update(executionContext);
+		// Written but never committed, as when the step fails in the middle of the next chunk
+		failed.write(Chunk.of(person(2L)));
+		failed.close();
+
+		StreamingXmlItemWriter<Beneficiary> restarted = writer(file);
+		restarted.open(executionContext);
+		restarted.write(Chunk.of(person(2L), person(3L)));
+		restarted.update(executionContext);
+		restarted.close();
+
+		assertEquals(complete(file, 1L, 2L, 3L), Files.readString(file));
+	}
+
+	@Test
+	void refusesToRestartAnOutputShorterThanItsCommittedPosition() throws Exception {
+		Path file = directory.resolve("customers.xml");
+		ExecutionContext executionContext = new ExecutionContext();
+		StreamingXmlItemWriter<Beneficiary> failed = writer(file);
+		failed.open(executionContext);
+		failed.write(Chunk.of(person(1L)));
+		failed.update(executionContext);
+		failed.close();
+		Files.writeString(file, "<");
+
+		assertThrows(ItemStreamException.class, () -> writer(file).open(executionContext));
+	}
+
+	@Test
+	void refusesToRestartCompressedOutput() throws Exception {
+		Path file = directory.resolve("customers.xml.gz");
+		ExecutionContext executionContext = new ExecutionContext();
+		StreamingXmlItemWriter<Beneficiary> failed = writer(file);
+		failed.open(executionContext);
+		failed.write(Chunk.of(person(1L)));
+		failed.update(executionContext);
+		failed.close();
+
+		assertThrows(ItemStreamException.class, () -> writer(file).open(executionContext));
+	}
+
+	/**
+	 * @return the content of an output written in one go
+	 */
+	private String complete(Path file, Long... personIds) throws Exception {
+		Path expected = directory.resolve("expected-" + file.getFileName());
+		StreamingXmlItemWriter<Beneficiary> writer = writer(expected);
+		writer.open(new ExecutionContext());
+		for (Long personId : personIds) {
+			writer.write(Chunk.of(person(personId)));
+		}
+		writer.close();
+		return Files.readString(expected);
+	}
+
+	private static StreamingXmlItemWriter<Beneficiary> writer(Path file) {
+		return new StreamingXmlItemWriter<>(file.toString(), "beneficiaries", BeneficiaryXmlElements::beneficiary);
+	}
+
+	private static Beneficiary person(Long personId) {
+		return Beneficiary.builder().personId(personId).firstName("KATE").lastName("WAUGH").build();
+	}
+}